@@ -1,16 +1,13 @@
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
-import java.util.Set;
-import java.util.Stack;
 
 /**
  * BaconNumber.java Calculates the bacon number from one given actor to another
@@ -19,58 +16,172 @@ import java.util.Stack;
  * 
  */
 public class BaconNumber {
+  /** Names suggested for a name that is not in the database */
+  public static final int SUGGESTIONS = 5;
+  /** Most names a list prints before saying how many more there are */
+  public static final int LISTED = 50;
   /** The center from which the bacon number is calculated */
-  private String center;
-  /** HashMap of actor names and their corresponding vertices */
-  private HashMap<String, Vertex> actors;
-  /** HashMap of movie titles and their corresponding vertices */
-  private HashMap<String, Vertex> movies;
+  private volatile String center;
+  /**
+   * Actors, movies and the credits between them, with the search trees of
+   * recently used centers over them, shared by every lookup and report. The
+   * graph and its trees are replaced together by update(), so a method reads
+   * this once and keeps to the graph and trees it read.
+   */
+  private volatile CenterTreeCache trees;
+  /** Landmark distances for distance(), or null to always search */
+  private volatile LandmarkOracle oracle;
+  /** Worker processes that hold the graph, or null if it is all in this one */
+  private ShardCoordinator shards;
   
   /**
    * Constructs a Kevin Bacon game.
    * 
    * @param url
-   *            the database of actors and movies.
+   *            the database of actors and movies, or a local (optionally
+   *            gzipped) file which is loaded on every core.
    * @param name
    *            the name that is the center of the game.
    * @throws IOException
    */
   public BaconNumber(String url, String name) throws IOException {
-    this.center = name;
-    this.actors = new HashMap<String, Vertex>();
-    this.movies = new HashMap<String, Vertex>();
+    Metrics.Trace trace = Metrics.start("load");
+    try (trace) {
+      this.center = name;
+      if (url.contains("://") == false || url.startsWith("file:")) { // local files are loaded in parallel
+        GraphLoader loader = new GraphLoader();
+        Graph graph = indexed(loader.load(url.contains("://") ? Paths.get(URI.create(url)) : Paths.get(url)));
+        System.out.println("Loaded " + loader.report());
+        this.trees = new CenterTreeCache(graph, CenterTreeCache.DEFAULT_BUDGET);
+        return;
+      }
+      GraphBuilder builder = new GraphBuilder();
     
-    Scanner read = new Scanner(new URL(url).openStream());
+      Scanner read = new Scanner(new URL(url).openStream());
     
-    while (read.hasNextLine()) { // while next line exists
-      String[] AandM = read.nextLine().split("\\|"); // split the line at the pipe
-      String nextActor = AandM[0]; // set index 0 of the array (actor) to variable
-      String nextMovie = AandM[1]; // set index 1 of the array (movie) to variable
-      if (this.actors.containsKey(nextActor) == false) { // if actor is not in our hashmap yet
-        Vertex actorV = new Vertex(nextActor); // make new vertex object with this actor
-        this.actors.put(nextActor, actorV); // put the actor in the hashmap with its vertex object as its value
-        if (this.movies.containsKey(nextMove)) { // if movie is in our hashmap
-          actorV.add(this.movies.get(nextMovie)); // add the movie to the neighbors of this actor vertex
-          this.movies.get(nextMovie).add(actorV); // add the actor to the neighbors of the movie vertex as well
-        } else { // if movie is not in hashmap
-          Vertex movieV = new Vertex(nextMovie); // make new vertex object for this movie
-          this.movies.put(nextMovie, movieV); // put into hashmap
-          movieV.add(actorV); // add actor vertex as neighbor
-          actorV.add(movieV); // add movie vertex as neighbor
-        }
-      } else if (this.actors.containsKey(nextActor)) { // same thing but for case when actor is already in hashmap
-        if (this.movies.containsKey(nextMovie)) {
-          this.actors.get(nextActor).add(this.movies.get(nextMovie));
-          this.movies.get(nextMovie).add(this.actors.get(nextActor));
-        } else {
-          Vertex movieV = new Vertex(nextMovie);
-          this.movies.put(nextMovie, movieV);
-          movieV.add(this.actors.get(nextActor));
-          this.actors.get(nextActor).add(movieV);
-        }
+      while (read.hasNextLine()) { // while next line exists
+        String[] AandM = read.nextLine().split("\\|"); // split the line at the pipe
+        builder.addCredit(AandM[0], AandM[1]); // index 0 is the actor, index 1 the movie
       }
+      read.close();
+      this.trees = new CenterTreeCache(indexed(builder.build()), CenterTreeCache.DEFAULT_BUDGET);
+    }
+  }
+  
+  /**
+   * Constructs a Kevin Bacon game over a graph that is already loaded, for
+   * example one mapped from a GraphSnapshot.
+   * 
+   * @param graph
+   *            the actors and movies.
+   * @param name
+   *            the name that is the center of the game.
+   */
+  public BaconNumber(Graph graph, String name) {
+    this.center = name;
+    this.trees = new CenterTreeCache(indexed(graph), CenterTreeCache.DEFAULT_BUDGET);
+  }
+  
+  /**
+   * Builds the name and degree indexes of a graph when it is loaded, so the
+   * first name that is not found is answered as fast as the rest.
+   * 
+   * @param graph
+   *            the actors and movies.
+   * @return the same graph.
+   */
+  private static Graph indexed(Graph graph) {
+    graph.index();
+    graph.degrees();
+    return graph;
+  }
+  
+  /**
+   * Constructs a Kevin Bacon game whose graph is split between worker
+   * processes. Only BNumber, find, avgdist and table are answered, by
+   * searches the workers run together; this process keeps the names.
+   * 
+   * @param shards
+   *            the running workers.
+   * @param name
+   *            the name that is the center of the game.
+   */
+  public BaconNumber(ShardCoordinator shards, String name) {
+    this(shards.graph(), name);
+    this.shards = shards;
+  }
+  
+  /**
+   * Returns the tree of the current center, running one breadth first search
+   * the first time it is needed unless the center was used recently. Every
+   * lookup then only has to follow parents back to the center.
+   * 
+   * @param trees
+   *            the graph and its trees, as read by the caller.
+   * @return tree of the current center.
+   */
+  private CenterTree centerTree(CenterTreeCache trees) {
+    return trees.get(this.center);
+  }
+  
+  /**
+   * Returns the tree of the current center only if it has already been built.
+   * 
+   * @param trees
+   *            the graph and its trees, as read by the caller.
+   * @return tree of the current center, or null.
+   */
+  private CenterTree builtTree(CenterTreeCache trees) {
+    return trees.peek(this.center);
+  }
+  
+  /**
+   * The actors and movies of the game.
+   * 
+   * @return graph.
+   */
+  public Graph graph() {
+    return this.trees.graph();
+  }
+  
+  /**
+   * Answers distance() out of landmark distances from now on.
+   * 
+   * @param oracle
+   *            landmarks over this game's graph, or null to always search.
+   */
+  public void oracle(LandmarkOracle oracle) {
+    this.oracle = oracle;
+  }
+  
+  /**
+   * The cache of recently used center trees.
+   * 
+   * @return center tree cache.
+   */
+  public CenterTreeCache trees() {
+    return this.trees;
+  }
+  
+  /**
+   * Tells that an actor is not in the database, suggesting the names that
+   * start like it or are a few typos away.
+   * 
+   * @param name
+   *            Name that was not found
+   * @return message with up to SUGGESTIONS names
+   */
+  public String unknown(String name) {
+    Graph graph = this.trees.graph();
+    int[] suggestions = graph.index().suggest(name, SUGGESTIONS);
+    if (suggestions.length == 0) {
+      return "This actor doesn't exist in the database!";
     }
-    read.close();
+    StringBuilder sb = new StringBuilder("This actor doesn't exist in the database! Did you mean: ");
+    for (int i = 0; i < suggestions.length; i++) {
+      sb.append(i > 0 ? ", " : "").append(graph.name(suggestions[i]));
+    }
+    return sb.append('?').toString();
   }
   
   /**
@@ -81,50 +192,49 @@ public class BaconNumber {
      * @return path to Kevin Bacon.
      */
   public String find (String name) {
-    StringBuilder sb = new StringBuilder();
-    this.actors.get(name).distance = 0;
-    this.actors.get(name).isVisited = true;
-    Queue<Vertex> nextNeighbor = new ArrayDeque<Vertex>();
-    if (name.equals(this.center)) {
-      sb.append(this.center);
-      restoreIsVisited();
-      return sb.toString();
-    } else {
-      nextNeighbor.add(this.actors.get(name));
-      while (nextNeighbor.isEmpty() == false) {
-        Vertex next = nextNeighbor.poll();
-        ArrayList<Vertex> neighbors;
-        if (this.actors.containsValue(next)) {
-          neighbors = this.actors.get(next.Name()).Neighbors();
-        } else {
-          neighbors = this.movies.get(next.Name()).Neighbors();
-        }
-        for (int n = 0; n < neighbors.size(); n++) {
-          if (neighbors.get(n).isVisited == false) {
-            neighbors.get(n).previous = next;
-            neighbors.get(n).distance = next.distance + 1;
-            if (neighbors.get(n).Name().equals(this.center)) {
-              Stack<String> previouses = new Stack<String>();
-              Vertex previous = neighbors.get(n);
-              for (int d = 0; d < neighbors.get(n).distance; d++) {
-                previouses.add(previous.previous.Name());
-                previous = previous.previous;
-              }
-              while (previouses.isEmpty() == false) {
-                sb.append(previouses.pop());
-                sb.append(" --> ");
-              }
-              sb.append(this.center);
-              restoreIsVisited();
-              return sb.toString();
-            }
-            neighbors.get(n).isVisited = true;
-            nextNeighbor.add(neighbors.get(n));
-          }
+    Metrics.Trace trace = Metrics.start("find");
+    try (trace) {
+      CenterTreeCache trees = this.trees;
+      Graph graph = trees.graph();
+      String center = this.center;
+      int actor = graph.actor(name);
+      int root = graph.actor(center);
+      if (actor == -1) {
+        return unknown(name);
+      } else if (root == -1) {
+        return name + " has a Bacon Number of infinity";
+      }
+      if (graph.connected(actor, root) == false) { // no need to search to know
+        return name + " has a Bacon Number of infinity";
+      }
+      if (this.shards != null) { // same steps as the tree would take
+        int[] path = this.shards.path(root, actor);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < path.length - 1; i++) {
+          sb.append(graph.name(path[i]));
+          sb.append(" --> ");
         }
+        sb.append(center);
+        return sb.toString();
+      }
+      CenterTree tree = builtTree(trees);
+      if (tree == null) { // no tree yet, search only as far as the center
+        String path = GraphSearch.path(graph, actor, root);
+        return path == null ? name + " has a Bacon Number of infinity" : path;
+      }
+      if (tree.distance(actor) == -1) {
+        return name + " has a Bacon Number of infinity";
       }
+      StringBuilder sb = new StringBuilder();
+      int step = actor;
+      while (tree.parent(step) != -1) { // walk up the tree until we reach the center
+        sb.append(graph.name(step));
+        sb.append(" --> ");
+        step = tree.parent(step);
+      }
+      sb.append(tree.center());
+      return sb.toString();
     }
-    return name + " has a Bacon Number of infinity";
   }
   
   /**
@@ -135,58 +245,133 @@ public class BaconNumber {
      * @return Bacon number
      */
   public int BNumber (String name) {
-    if (this.actors.containsKey(name) == false){ //no such actor in our list
-      return -2;
-    }
-    this.actors.get(name).distance = 0; //set distance to 0
-    this.actors.get(name).isVisited = true; //visited given actor
-    Queue<Vertex> nextNeighbor = new ArrayDeque<Vertex>(); //queue of subsequent neighbors
-    if (name.equals(this.center)) { //if given actor is the center
-      restoreIsVisited();
-      return 0; 
-    } else {
-      nextNeighbor.add(this.actors.get(name)); //add actor to neighbors queue
-      while (nextNeighbor.isEmpty() == false) { //while the queue has actors lined up
-        Vertex next = nextNeighbor.poll(); //set 'next' to first actor in queue (and remove it)
-        ArrayList<Vertex> neighbors; //list of each Vertex's neighbors
-        if (this.actors.containsValue(next)) { //if we are dealing with an actor
-          neighbors = this.actors.get(next.Name()).Neighbors(); //get actor's list of movies
-        } else { //otherwise this is a movie
-          neighbors = this.movies.get(next.Name()).Neighbors(); //get movie's list of actors
-        }
-        for (int n = 0; n < neighbors.size(); n++) { //go through neighbors list 
-          if (neighbors.get(n).isVisited == false) { //if element has not yet been looked at
-            neighbors.get(n).distance = next.distance + 1; //set its distance to previous Vertex's distance +1
-            if (neighbors.get(n).Name().equals(this.center)) { //we have reached the center
-              restoreIsVisited(); 
-              return neighbors.get(n).distance / 2; //since we increased by 1 for both movies and actors, we need to divide by two to disregard movies.
-            }
-            neighbors.get(n).isVisited = true; //set isVisited to true
-            nextNeighbor.add(neighbors.get(n)); //add each neighbor to next neighbor list to continue process
-          }
-        }
+    Metrics.Trace trace = Metrics.start("BNumber");
+    try (trace) {
+      CenterTreeCache trees = this.trees;
+      Graph graph = trees.graph();
+      int actor = graph.actor(name);
+      if (actor == -1) { //no such actor in our list
+        return -2;
+      }
+      int root = graph.actor(this.center);
+      if (root == -1 || graph.connected(actor, root) == false) { // no need to search to know
+        return -1;
+      }
+      if (this.shards != null) { // the workers search only as far as the actor
+        int distance = this.shards.distance(root, actor);
+        return distance == -1 ? -1 : distance / 2;
+      }
+      CenterTree tree = builtTree(trees);
+      int distance;
+      if (tree != null) {
+        distance = tree.distance(actor);
+      } else { // no tree yet, search only as far as the center
+        distance = GraphSearch.distance(graph, actor, root);
       }
-      restoreIsVisited();
-      return -1;
+      if (distance == -1) { //not connected to the center
+        return -1;
+      }
+      return distance / 2; //since we increased by 1 for both movies and actors, we need to divide by two to disregard movies.
+    }
   }
   
   /**
-    * Goes through graph and changes all marked visited spots back to false.
-    */
-  public void restoreIsVisited() {
-    Collection<Vertex> actors = this.actors.values();
-    Iterator<Vertex> actorsITR = actors.iterator();
-    while (actorsITR.hasNext()) {
-      actorsITR.next().isVisited = false;
+   * Finds how one actor is connected to another, without touching the center.
+   * 
+   * @param from
+   *            name of the first actor.
+   * @param to
+   *            name of the second actor.
+   * @return path of actors and movies from the first actor to the second.
+   */
+  public String connect(String from, String to) {
+    Metrics.Trace trace = Metrics.start("connect");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      int a = graph.actor(from);
+      int b = graph.actor(to);
+      int[] path = a == -1 || b == -1 ? null : GraphSearch.shortestPath(graph, a, b);
+      if (path == null) {
+        return from + " and " + to + " are not connected";
+      }
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < path.length; i++) {
+        if (i > 0) {
+          sb.append(" --> ");
+        }
+        sb.append(graph.name(path[i]));
+      }
+      return sb.toString();
     }
-
-    Collection<Vertex> movies = this.movies.values();
-    Iterator<Vertex> moviesITR = movies.iterator();
-    while (moviesITR.hasNext()) {
-      moviesITR.next().isVisited = false;
+  }
+  
+  /**
+   * Calculates the number of movies separating two actors, like a Bacon number
+   * with the second actor as the center.
+   * 
+   * @param from
+   *            name of the first actor.
+   * @param to
+   *            name of the second actor.
+   * @return distance, -1 if they are not connected, -2 if either actor doesn't exist.
+   */
+  public int distance(String from, String to) {
+    Metrics.Trace trace = Metrics.start("distance");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      int a = graph.actor(from);
+      int b = graph.actor(to);
+      if (a == -1 || b == -1) {
+        return -2;
+      }
+      LandmarkOracle oracle = this.oracle;
+      if (oracle != null) { // most pairs are answered by the landmarks alone
+        return oracle.distance(a, b);
+      }
+      int[] path = GraphSearch.shortestPath(graph, a, b);
+      return path == null ? -1 : (path.length - 1) / 2;
     }
   }
     
+  /**
+   * Adds and removes credits without reloading the database. The cached
+   * center trees are repaired around the changed credits instead of being
+   * searched again, so Bacon numbers and paths stay exact. Lookups already
+   * under way finish on the old graph and its trees.
+   * 
+   * @param update
+   *            credits to add and remove.
+   * @return what changed.
+   */
+  public synchronized GraphUpdate.Result update(GraphUpdate update) {
+    Metrics.Trace trace = Metrics.start("update");
+    try (trace) {
+      GraphUpdate.Result result = update.apply(this.trees.graph());
+      indexed(result.graph); // carried over by apply(), built here only if the old graph had not built them
+      this.trees = this.trees.update(result); // the new graph and its repaired trees at once
+      this.oracle = null; // its distances are of the old graph
+      return result;
+    }
+  }
+  
+  /**
+   * Picks a random actor of the largest component as a center, so the game
+   * does not start out on an island of a few actors.
+   * 
+   * @param rand
+   *            random numbers.
+   * @return actor id.
+   */
+  public int randomCenter(Random rand) {
+    Graph graph = this.trees.graph();
+    Components components = graph.components();
+    int actor;
+    do { // nearly every actor is in the largest component, so this takes a try or two
+      actor = rand.nextInt(graph.actorCount());
+    } while (components.of(actor) != components.largest());
+    return actor;
+  }
+  
   /**
    * Changes the center of the game.
    * 
@@ -194,166 +379,421 @@ public class BaconNumber {
    *            New center of game.
    */
   public void recenter(String name) {
-    this.center = name;
+    this.center = name; // the old tree stays cached in case the game comes back to it
   }
   
   public double avgdist() {
-    int totalReach = 0;
-    int totalBacon = 0;
-    int unReachable = 0;
+    Metrics.Trace trace = Metrics.start("avgdist");
+    try (trace) {
+      CenterTreeCache trees = this.trees;
+      Graph graph = trees.graph();
+      int root = graph.actor(this.center);
+      Components components = graph.components();
+      int totalReach = root == -1 ? 0 : components.actorsWith(root); // known without looking at anybody
+      long totalBacon = 0;
+      int unReachable = graph.actorCount() - totalReach;
     
-    for (String x : this.actors.keySet()) {
-      int bnumber = BNumber(x);
-      if (bnumber == -1) {
-        unReachable++;
+      if (this.shards != null) { // from the workers' count of every Bacon number
+        long[] counts = totalReach > 0 ? this.shards.table(root) : new long[0];
+        for (int b = 0; b < counts.length; b++) {
+          totalBacon += b * counts[b];
+        }
       } else {
-        totalReach++;
-        totalBacon += bnumber;
+        CenterTree tree = centerTree(trees);
+        for (int x = 0; x < graph.actorCount() && totalReach > 0; x++) {
+          if (components.connected(x, root)) {
+            totalBacon += tree.distance(x) / 2;
+          }
+        }
       }
-    }
     
-    double avg = (double) totalBacon / totalReach;
-    System.out.println(avg + "\t" + this.center + " (" + totalReach + "," + unReachable + ")");
-    return avg;
+      double avg = (double) totalBacon / totalReach;
+      System.out.println(avg + "\t" + this.center + " (" + totalReach + "," + unReachable + ")");
+      return avg;
+    }
   }
   
+  /**
+    * Average bacon number of many centers at once, without changing the
+    * center. The centers are searched 64 at a time in one pass over the
+    * graph, which costs about as much as a few single centers.
+    *
+    * @param centers
+    *            Names of the centers
+    * @return average of every center, NaN for names that are not actors
+    */
+  public double[] avgdist(List<String> centers) {
+    Metrics.Trace trace = Metrics.start("avgdist");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      int[] sources = new int[centers.size()];
+      int found = 0;
+      for (String name : centers) {
+        if (graph.actor(name) != -1) {
+          sources[found++] = graph.actor(name);
+        }
+      }
+      MultiSourceBfs bfs = new MultiSourceBfs(graph, Runtime.getRuntime().availableProcessors() > 1);
+      MultiSourceBfs.Result[] results = bfs.run(Arrays.copyOf(sources, found));
+
+      double[] averages = new double[centers.size()];
+      int next = 0;
+      for (int i = 0; i < averages.length; i++) {
+        if (graph.actor(centers.get(i)) == -1) {
+          averages[i] = Double.NaN;
+          continue;
+        }
+        MultiSourceBfs.Result result = results[next++];
+        averages[i] = result.average();
+        System.out.println(averages[i] + "\t" + centers.get(i) + " (" + result.reach() + ","
+            + (graph.actorCount() - result.reach()) + ")");
+      }
+      return averages;
+    }
+  }
+
+  /**
+    * Average bacon number of many centers at once, estimated from searches
+    * out of a sample of pivot actors with a 95% confidence interval, or
+    * exactly like avgdist(centers)
+    *
+    * @param centers
+    *            Names of the centers
+    * @param approximate
+    *            Whether to estimate
+    * @return average of every center, NaN for names that are not actors
+    */
+  public double[] avgdist(List<String> centers, boolean approximate) {
+    Graph graph = this.trees.graph();
+    if (approximate == false) {
+      return avgdist(centers);
+    }
+    Metrics.Trace trace = Metrics.start("avgestimate");
+    try (trace) {
+      ClosenessEstimate estimate = new ClosenessEstimate(graph, System.nanoTime());
+      estimate.sample(ClosenessEstimate.MIN_PIVOTS);
+      double[] averages = new double[centers.size()];
+      for (int i = 0; i < averages.length; i++) {
+        int actor = graph.actor(centers.get(i));
+        if (actor == -1) {
+          averages[i] = Double.NaN;
+          continue;
+        }
+        ClosenessEstimate.Estimate result = estimate.estimate(actor);
+        averages[i] = result.average;
+        System.out.println(result);
+      }
+      return averages;
+    }
+  }
+
   /**
     * Prints a table of the counts of bacon numbers for the given center from 0
     * up to the longest.
     */
   public void table() {
-    LinkedList<Integer> list = new LinkedList<Integer>();
-    for (String x : this.actors.keySet()) {
-      int bnumber = BNumber(x);
-      if (list.size() == 0) {
-        list.add(bnumber);
-      } else {
-        list.add(0, bnumber);
+    Metrics.Trace trace = Metrics.start("table");
+    try (trace) {
+      CenterTreeCache trees = this.trees;
+      Graph graph = trees.graph();
+      if (this.shards != null) {
+        int root = graph.actor(this.center);
+        long[] counts = root == -1 ? new long[1] : this.shards.table(root);
+        System.out.println("Table of distance for " + this.center);
+        for (int a = 0; a < counts.length; a++) {
+          System.out.println("Number\t" + a + ":" + "\t\t" + counts[a]);
+        }
+        long reach = Arrays.stream(counts).sum();
+        System.out.println("Unreachable:\t\t" + (graph.actorCount() - reach));
+        return;
       }
-    }
-    
-    int max = 0;
-    
-    for (int i : list) {
-      if (i > max) {
-        max = i;
+      CenterTree tree = centerTree(trees);
+      int max = 0;
+      for (int x = 0; x < graph.actorCount(); x++) {
+        if (tree.distance(x) / 2 > max) {
+          max = tree.distance(x) / 2;
+        }
       }
-    }
     
-    int[] bnList = new int[max + 2];
+      int[] bnList = new int[max + 2];
+      int root = graph.actor(this.center);
+      int reach = root == -1 ? 0 : graph.components().actorsWith(root);
+      bnList[bnList.length - 1] = graph.actorCount() - reach; // unreachable, from the component index
     
-    for (int j : list) {
-      if (j == -1) {
-        bnList[bnList.length - 1]++;
+      for (int x = 0; x < graph.actorCount() && reach > 0; x++) {
+        if (graph.connected(x, root)) {
+          bnList[tree.distance(x) / 2]++;
+        }
       }
-      bnList[j]++;
-    }
     
-    System.out.println("Table of distance for " + this.center);
-    for (int a = 0; a < bnList.length - 1; a++) {
-      System.out.println("Number\t" + a + ":" + "\t\t" + bnList[a]);
+      System.out.println("Table of distance for " + this.center);
+      for (int a = 0; a < bnList.length - 1; a++) {
+        System.out.println("Number\t" + a + ":" + "\t\t" + bnList[a]);
+      }
+      System.out.println("Unreachable:\t\t" + bnList[bnList.length - 1]);
     }
-    System.out.println("Unreachable:\t\t" + bnList[bnList.length - 1]);
   }
   
   /**
-    * Print the n best centers (less avg bacon number is better)
+    * Print the n best centers (less avg bacon number is better), searching
+    * on every core and cutting short centers that cannot make the top n
     * 
     * @param n
     *            Number of centers being printed
     */
   public void topcenter(int n) {
-    String curCenter = this.center;
-    ArrayList<Double> doubles = new ArrayList<Double>();
-    HashMap<Double, String> names = new HashMap<Double, String>();
-    
-    for (String x : this.actors.keySet()) {
-      this.center = this.actors.get(x).Name();
-      double thisavrg;
-      
-      int totalReach = 0;
-      int totalBacon = 0;
-      
-      for (String y : this.actors.keySet()) {
-        int bnumber = BNumber(y);
-        if (bnumber != -1) {
-          totalReach++;
-          totalBacon += bnumber;
-        }
-      }
-      
-      thisavrg = (double) totalBacon / totalReach;
-      
-      if (doubles.isEmpty()) {
-        doubles.add(thisavrg);
-        names.put(thisavrg, this.center);
-      } else {
-        for (int s = 0; s < doubles.size(); s++) {
-          if (thisavrg <= doubles.get(s)) {
-            doubles.add(s, thisavrg);
-            names.put(thisavrg, this.center);
-            break;
-          }
-        }
+    Metrics.Trace trace = Metrics.start("topcenter");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      TopCenters top = new TopCenters(graph);
+      for (TopCenters.Result result : top.top(n, Runtime.getRuntime().availableProcessors())) {
+        System.out.println(result);
       }
     }
-    for (int i = 0; i < n; i++) {
-      System.out.println(doubles.get(i) + "\t" + names.get(doubles.get(i)));
+  }
+  
+  /**
+    * Print the n best centers, either exactly like topcenter(n) or estimated
+    * from searches out of a sample of pivot actors, with only the most
+    * promising centers searched exactly at the end
+    * 
+    * @param n
+    *            Number of centers being printed
+    * @param approximate
+    *            Whether to estimate first
+    */
+  public void topcenter(int n, boolean approximate) {
+    Graph graph = this.trees.graph();
+    if (approximate == false) {
+      topcenter(n);
+      return;
+    }
+    Metrics.Trace trace = Metrics.start("topestimate");
+    try (trace) {
+      ClosenessEstimate estimate = new ClosenessEstimate(graph, System.nanoTime());
+      for (ClosenessEstimate.Estimate result : estimate.top(n, Runtime.getRuntime().availableProcessors())) {
+        System.out.println(result);
+      }
     }
-    this.center = curCenter;
   }
   
   /**
-    * Finds paths to the center for all actors and actresses in the database.
+    * Finds paths to the center for all actors and actresses in the database,
+    * all out of the center's tree.
     */
   public void findall() {
-    for (String x : this.actors.keySet()) {
-      System.out.print(this.actors.get(x).Name() + ": " + find(this.actors.get(x).Name()));
-      System.out.print(" (" + BNumber(this.actors.get(x).Name()) + ")");
-      System.out.println(" ");
+    Metrics.Trace trace = Metrics.start("findall");
+    try (trace) {
+      CenterTreeCache trees = this.trees;
+      Graph graph = trees.graph();
+      PathExport export = new PathExport(graph, centerTree(trees), Runtime.getRuntime().availableProcessors());
+      export.write(System.out, " \n \n");
+    } catch (IOException e) { // System.out never throws
+      throw new IllegalStateException(e);
+    }
+  }
+  
+  /**
+    * Writes the path to the center and Bacon number of every actor to a file,
+    * one line each, through a large buffer and gzipped if the file name ends
+    * in .gz.
+    * 
+    * @param file
+    *            File to write
+    * @return Number of actors written
+    * @throws IOException
+    */
+  public long findall(String file) throws IOException {
+    Metrics.Trace trace = Metrics.start("findall");
+    try (trace) {
+      CenterTreeCache trees = this.trees;
+      Graph graph = trees.graph();
+      PathExport export = new PathExport(graph, centerTree(trees), Runtime.getRuntime().availableProcessors());
+      return export.write(Paths.get(file));
+    }
+  }
+  
+  /**
+   * Print the n actors with the most film credits and the n movies with the
+   * largest casts, straight off the degree index.
+   * 
+   * @param n
+   *            number of actors and of movies.
+   * @return id of the actor with the most credits, -1 if there are none.
+   */
+  public int most(int n) {
+    Metrics.Trace trace = Metrics.start("most");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      DegreeIndex degrees = graph.degrees();
+      int[] actors = degrees.top(n, false);
+      System.out.println("Most film credits:");
+      for (int i = 0; i < actors.length; i++) {
+        System.out.println((i + 1) + ". " + graph.name(actors[i]) + " (" + graph.degree(actors[i]) + ")");
+      }
+      int[] movies = degrees.top(n, true);
       System.out.println(" ");
+      System.out.println("Largest casts:");
+      for (int i = 0; i < movies.length; i++) {
+        System.out.println((i + 1) + ". " + graph.name(movies[i]) + " (" + graph.degree(movies[i]) + ")");
+      }
+      return actors.length == 0 ? -1 : actors[0];
     }
   }
   
   /**
-   * List the actor with the most film credits.
+   * Print how many actors have at least k film credits, with the first of
+   * them, and how many movies have at least k actors.
    * 
-   * @return ArrayList of Vertexes
+   * @param k
+   *            fewest credits.
    */
-  public ArrayList<Vertex> most() {
-    Vertex actor = null;
-    for (String x : this.actors.keySet()) {
-      if (actor == null) {
-        actor = this.actors.get(x);
-      } else {
-        if (this.actors.get(x).Neighbors().size() > actor.Neighbors().size()) {
-          actor = this.actors.get(x);
-        }
+  public void credits(int k) {
+    Metrics.Trace trace = Metrics.start("credits");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      DegreeIndex degrees = graph.degrees();
+      int count = degrees.count(k, false);
+      System.out.println(count + " of " + graph.actorCount() + " actors have at least " + k + " film credits");
+      int[] actors = degrees.top(Math.min(count, LISTED), false);
+      for (int actor : actors) {
+        System.out.println(graph.name(actor) + " (" + graph.degree(actor) + ")");
+      }
+      if (count > actors.length) {
+        System.out.println("... and " + (count - actors.length) + " more");
       }
+      System.out.println(degrees.count(k, true) + " of " + graph.movieCount() + " movies have at least " + k
+                            + " actors");
     }
-    System.out.println("Name: " + actor.Name());
-    System.out.println("Movie credits: " + actor.Neighbors().size());
-    
-    return actor.Neighbors();
   }
   
   /**
-   * Print the longest path to the center.
+   * Print the longest path to the center, and how many actors are that far
+   * away, all out of the center's tree.
    */
   public void longest() {
-    String actor = null;
-    for (String x : this.actors.keySet()) {
-      if (actor == null) {
-        actor = this.actors.get(x).Name();
+    Metrics.Trace trace = Metrics.start("longest");
+    try (trace) {
+      CenterTreeCache trees = this.trees;
+      Graph graph = trees.graph();
+      CenterTree tree = centerTree(trees);
+      int[] farthest = tree.farthest();
+      if (farthest.length == 0) {
+        System.out.println(" ");
+        System.out.println(this.center + " is not in the database");
+        return;
+      }
+      String name = graph.name(farthest[0]);
+      System.out.println(" ");
+      System.out.println("Name: " + name);
+      System.out.println(find(name) + " (" + tree.distance(farthest[0]) / 2 + ")");
+      System.out.println(farthest.length + " actors have this Bacon number");
+    }
+  }
+  
+  /**
+   * Print the diameter of the database, the largest Bacon number between any
+   * two actors who are connected, with a path that long.
+   * 
+   * @return Eccentricity.Result with the diameter and both ends
+   */
+  public Eccentricity.Result diameter() {
+    Metrics.Trace trace = Metrics.start("diameter");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      long start = System.currentTimeMillis();
+      Eccentricity.Result result = new Eccentricity(graph).diameter();
+      System.out.println("Diameter: " + result.diameter);
+      if (result.from != -1) {
+        System.out.println(connect(graph.name(result.from), graph.name(result.to)));
+      }
+      System.out.println("Found with " + result.searches + " searches in " + (System.currentTimeMillis() - start)
+                            + " ms");
+      return result;
+    }
+  }
+  
+  /**
+   * Print every actor whose Bacon number to somebody is the diameter.
+   * 
+   * @return Eccentricity.Result with the diameter and the peripheral actors
+   */
+  public Eccentricity.Result periphery() {
+    Metrics.Trace trace = Metrics.start("periphery");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      long start = System.currentTimeMillis();
+      Eccentricity.Result result = new Eccentricity(graph).periphery();
+      System.out.println("Diameter: " + result.diameter);
+      System.out.println(result.periphery.length + " actors are that far from somebody:");
+      for (int actor : result.periphery) {
+        System.out.println(graph.name(actor));
+      }
+      System.out.println("Found with " + result.searches + " searches in " + (System.currentTimeMillis() - start)
+                            + " ms");
+      return result;
+    }
+  }
+  
+  /**
+   * Number of different shortest paths from an actor to the center, counted
+   * by one breadth first search out of the center.
+   * 
+   * @param name
+   *            Name of the actor
+   * @return Number of shortest paths, 0 if unreachable and -2 if the actor
+   *         does not exist
+   */
+  public double paths(String name) {
+    Metrics.Trace trace = Metrics.start("paths");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      int actor = graph.actor(name);
+      int root = graph.actor(this.center);
+      if (actor == -1) {
+        return -2;
+      } else if (root == -1 || graph.connected(actor, root) == false) {
+        return 0;
+      }
+      return Betweenness.paths(graph, root)[actor];
+    }
+  }
+  
+  /**
+   * Print the n actors and n movies that the most shortest paths between
+   * two actors go through, searching out of every actor or, if samples is
+   * more than 0, out of that many random actors
+   * 
+   * @param n
+   *            Number of actors and of movies printed
+   * @param samples
+   *            Number of source actors, 0 for all of them
+   */
+  public void bridges(int n, int samples) {
+    Metrics.Trace trace = Metrics.start(samples > 0 ? "bridgesample" : "bridges");
+    try (trace) {
+      Graph graph = this.trees.graph();
+      long start = System.currentTimeMillis();
+      Betweenness betweenness = new Betweenness(graph);
+      int threads = Runtime.getRuntime().availableProcessors();
+      if (samples > 0) {
+        betweenness.run(threads, samples, System.nanoTime());
       } else {
-        if (BNumber(this.actors.get(x).Name()) > BNumber(actor)) {
-          actor = this.actors.get(x).Name();
-        }
+        betweenness.run(threads);
+      }
+      System.out.println("Actors:");
+      for (Betweenness.Result result : betweenness.top(n, false)) {
+        System.out.println(result);
+      }
+      System.out.println(" ");
+      System.out.println("Movies:");
+      for (Betweenness.Result result : betweenness.top(n, true)) {
+        System.out.println(result);
       }
+      System.out.println(" ");
+      System.out.println("Searched out of " + betweenness.sources() + " actors in "
+                            + (System.currentTimeMillis() - start) + " ms");
     }
-    System.out.println(" ");
-    System.out.println("Name: " + actor);
-    System.out.println(find(actor) + " (" + BNumber(actor) + ")");
   }
   
   /**
@@ -363,10 +803,87 @@ public class BaconNumber {
    *            actor being searched for.
    */
   public void movies(String name) {
+    movies(name, Integer.MAX_VALUE);
+  }
+  
+  /**
+   * List the movies that the actor has been in, up to a limit.
+   * 
+   * @param name
+   *            actor being searched for.
+   * @param limit
+   *            most movies printed; the rest are only counted.
+   */
+  public void movies(String name, int limit) {
+    Graph graph = this.trees.graph();
     System.out.println(" ");
     System.out.println("Name: " + name);
-    for (int i = 0; i < this.actors.get(name).Neighbors().size(); i++) {
-      System.out.println(this.actors.get(name).Neighbors().get(i));
+    int actor = graph.actor(name);
+    IntBuffer offsets = graph.offsets();
+    int end = offsets.get(actor) + Math.min(limit, graph.degree(actor));
+    for (int e = offsets.get(actor); e < end; e++) {
+      System.out.println(graph.name(graph.adjacency().get(e)));
+    }
+    if (offsets.get(actor + 1) > end) {
+      System.out.println("... and " + (offsets.get(actor + 1) - end) + " more");
+    }
+  }
+  
+  
+  /**
+   * The game over shard workers, which answers only what they can search.
+   * 
+   * @param bn
+   *            game backed by a ShardCoordinator.
+   */
+  @SuppressWarnings("resource")
+  private static void playShards(BaconNumber bn) {
+    Scanner input = new Scanner(System.in);
+    while (true) {
+      System.out.println(" ");
+      System.out.println("Your center is currently: " + bn.center);
+      System.out.println("Here are your command options: ");
+      System.out.println(" ");
+      System.out.println("1. bacon -- calculate the bacon number of an actor, the average distance for "
+                            + "current center, and the table of distance for current center");
+      System.out.println("2. recenter -- change the center of the game");
+      System.out.println("3. stats -- show how often every operation ran, how long it took and how much it searched");
+      System.out.println("4. exit -- exit the game");
+      System.out.println(" ");
+      System.out.print("Enter command: ");
+      String command = input.nextLine();
+      if (command.equals("bacon")) {
+        System.out.print("Enter actor name: ");
+        String nameactor = input.nextLine();
+        if (bn.BNumber(nameactor) == -2) {
+          System.out.println(bn.unknown(nameactor));
+        } else {
+          System.out.println(" ");
+          System.out.print(bn.find(nameactor));
+          System.out.print(" (" + bn.BNumber(nameactor) + ")");
+          System.out.println(" ");
+          System.out.println(" ");
+          System.out.print("Average Bacon Number: ");
+          bn.avgdist();
+          System.out.println(" ");
+          bn.table();
+        }
+      } else if (command.equals("recenter")) {
+        System.out.print("New center: ");
+        String center = input.nextLine();
+        if (bn.graph().actor(center) == -1) {
+          System.out.println(bn.unknown(center));
+        } else {
+          bn.recenter(center);
+        }
+      } else if (command.equals("stats")) {
+        System.out.println(" ");
+        System.out.print(Metrics.report());
+      } else if (command.equals("exit")) {
+        return;
+      } else {
+        System.out.println("Sorry, this command does not exist");
+      }
     }
   }
   
@@ -381,19 +898,61 @@ public class BaconNumber {
     String notv = "http://cs.oberlin.edu/~gr151/imdb/imdb.only-tv-v.txt";
     String full = "http://cs.oberlin.edu/~gr151/imdb/imdb.full.txt";
 
+    // COMPILING A SNAPSHOT//
+    if (args.length == 3 && args[0].equals("compile")) { // compile <database url or file> <snapshot file>
+      long start = System.currentTimeMillis();
+      BaconNumber compiled = new BaconNumber(args[1], "none");
+      GraphSnapshot.write(compiled.graph(), Paths.get(args[2]));
+      new LandmarkOracle(compiled.graph(), LandmarkOracle.DEFAULT_LANDMARKS, LandmarkOracle.Selection.COVERAGE)
+          .write(Paths.get(args[2] + ".landmarks"));
+      System.out.println("Wrote " + compiled.graph().actorCount() + " actors and " + compiled.graph().movieCount()
+                            + " movies to " + args[2] + " and its landmarks in "
+                            + (System.currentTimeMillis() - start) + " ms");
+      return;
+    }
+    
+    // SERVING OVER HTTP//
+    if (args.length >= 2 && args[0].equals("serve")) { // serve <snapshot or database> [port] [center]
+      BaconServer.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    
+    // PLAYING OVER SHARDS//
+    if (args.length >= 3 && args[0].equals("shards")) { // shards <snapshot> <workers> [worker JVM options]
+      long start = System.currentTimeMillis();
+      Graph graph = GraphSnapshot.open(Paths.get(args[1])); // only the names and components are read here
+      try (ShardCoordinator shards = new ShardCoordinator(graph, Paths.get(args[1]), Integer.parseInt(args[2]),
+          Arrays.asList(args).subList(3, args.length))) {
+        System.out.println("Started " + shards.shards() + " shard workers in " + (System.currentTimeMillis() - start)
+                              + " ms");
+        for (int s = 0; s < shards.shards(); s++) {
+          System.out.println("Shard " + s + ": " + (shards.memory(s) >> 10) + " KB");
+        }
+        BaconNumber bn = new BaconNumber(shards, "Kevin Bacon (I)");
+        if (bn.graph().actor(bn.center) == -1) {
+          bn.recenter(bn.graph().name(bn.randomCenter(new Random())));
+        }
+        playShards(bn);
+      }
+      return;
+    }
+    
     // CHOOSING A FILE//
     System.out.println("Welcome to the Kevin Bacon Game!");
-    System.out.println(" ");
-    System.out.println("Please choose a database: ");
-    System.out.println(" ");
-    System.out.println("small -- a 1817 line file with just a handful of performers (161)");
-    System.out.println("top250 -- a 14339 line file listing just the top 250 movies on IMDB");
-    System.out.println("pre1950 -- a 966338 line file with movies made before 1950");
-    System.out.println("post1950 -- a 6848516 line file with the movies made after 1950");
-    System.out.println("only tv -- a 2021636 line file with only made for TV and direct to video movies");
-    System.out.println("no tv -- a 5793218 line file without the made for TV and direct to video movies");
-    System.out.println("full -- all 7814854 lines of IMDB for you to search through");
-    boolean noSuchFile = true;
+    boolean noSuchFile = args.length == 0; // a snapshot given on the command line skips choosing a file
+    if (noSuchFile) {
+      System.out.println(" ");
+      System.out.println("Please choose a database: ");
+      System.out.println(" ");
+      System.out.println("small -- a 1817 line file with just a handful of performers (161)");
+      System.out.println("top250 -- a 14339 line file listing just the top 250 movies on IMDB");
+      System.out.println("pre1950 -- a 966338 line file with movies made before 1950");
+      System.out.println("post1950 -- a 6848516 line file with the movies made after 1950");
+      System.out.println("only tv -- a 2021636 line file with only made for TV and direct to video movies");
+      System.out.println("no tv -- a 5793218 line file without the made for TV and direct to video movies");
+      System.out.println("full -- all 7814854 lines of IMDB for you to search through");
+      System.out.println("or the path of a local copy of any of them (plain or .gz)");
+    }
     String url = null;
     while (noSuchFile) {
       System.out.println(" ");
@@ -422,6 +981,9 @@ public class BaconNumber {
       } else if (urlInput.equals("full")) {
         url = full;
         noSuchFile = false;
+      } else if (Files.isRegularFile(Paths.get(urlInput))) { // a local copy of any of the databases
+        url = urlInput;
+        noSuchFile = false;
       } else {
         System.out.println("Sorry, this database does not exist.");
       }
@@ -429,21 +991,32 @@ public class BaconNumber {
     
     // CREATING CLASS INSTANCE//
     BaconNumber bn;
-    if (url == pre1950) { // Chooses a random actor as center since Kevin Bacon is not in database
-      bn = new BaconNumber(url, "none");
-      Random rand = new Random();
-      int randint = rand.nextInt((bn.actors.size()));
-      Set<String> actors = bn.actors.keySet();
-      Iterator<String> actorsITR = actors.iterator();
-
-      String randCenter = null;
-      for (int i = 0; i < randint; i++) {
-        randCenter = actorsITR.next();
+    if (url == null) { // open the snapshot without parsing anything
+      long start = System.currentTimeMillis();
+      Metrics.Trace trace = Metrics.start("load");
+      try (trace) {
+        bn = new BaconNumber(GraphSnapshot.open(Paths.get(args[0])), "Kevin Bacon (I)");
+      }
+      if (Files.exists(Paths.get(args[0] + ".landmarks"))) { // written next to the snapshot by compile
+        try {
+          bn.oracle(LandmarkOracle.open(Paths.get(args[0] + ".landmarks"), bn.graph()));
+        } catch (IOException e) { // left over from another snapshot, search instead
+          System.out.println("Not using landmarks: " + e.getMessage());
+        }
       }
-      bn.center = randCenter;
+      System.out.println("Opened " + args[0] + " in " + (System.currentTimeMillis() - start) + " ms");
+      if (bn.graph().actor(bn.center) == -1) { // same as pre1950, Kevin Bacon is not in every database
+        bn.recenter(bn.graph().name(bn.randomCenter(new Random())));
+      }
+    } else if (url == pre1950) { // Chooses a random actor as center since Kevin Bacon is not in database
+      bn = new BaconNumber(url, "none");
+      bn.recenter(bn.graph().name(bn.randomCenter(new Random())));
     } else {
       bn = new BaconNumber(url, "Kevin Bacon (I)"); // For all other files, Kevin Bacon is the default center
     }
+    System.out.println("Names: " + bn.graph().names().report());
+    System.out.println("Name index: " + (bn.graph().index().memory() >> 10) + " KB, degree index: "
+                          + (bn.graph().degrees().memory() >> 10) + " KB");
     
     boolean keepRun = true; // boolean to keep the game running
     while (keepRun) {
@@ -455,12 +1028,21 @@ public class BaconNumber {
       System.out.println("1. bacon -- calculate the bacon number of an actor, the average distance for "
                             + "current center, and the table of distance for current center");
       System.out.println("2. recenter -- change the center of the game");
-      System.out.println("3. topcenter -- find the top n centers by average distance");
-      System.out.println("4. findall -- find the bacon number of every actor in the database");
-      System.out.println("5. most -- find the actor with the most film credits");
+      System.out.println("3. topcenter -- find the top n centers by average distance, exactly or estimated from a sample");
+      System.out.println("4. findall -- find the bacon number of every actor in the database, printed or written to a file");
+      System.out.println("5. most -- find the actors with the most film credits and the movies with the largest casts");
       System.out.println("6. longest -- prints out one of the longest paths to the center");
       System.out.println("7. movies -- list all the movies a given actor has played in");
-      System.out.println("8. exit -- exit the game");
+      System.out.println("8. connect -- find how one actor is connected to another");
+      System.out.println("9. cache -- show how many center trees are cached and how often they were reused");
+      System.out.println("10. update -- add and remove credits listed in a file (+actor|movie or -actor|movie)");
+      System.out.println("11. stats -- show how often every operation ran, how long it took and how much it searched");
+      System.out.println("12. diameter -- find the largest Bacon number between any two actors");
+      System.out.println("13. periphery -- list every actor that is the diameter away from somebody");
+      System.out.println("14. paths -- count the different shortest paths from an actor to the center");
+      System.out.println("15. bridges -- rank the actors and movies the most shortest paths go through");
+      System.out.println("16. credits -- count the actors with at least a number of film credits");
+      System.out.println("17. exit -- exit the game");
       
       System.out.println(" ");
       System.out.print("Enter command: ");
@@ -472,19 +1054,43 @@ public class BaconNumber {
         System.out.print("New center: ");
         Scanner input2 = new Scanner(System.in);
         String center = input2.nextLine();
-        bn.recenter(center);
+        if (bn.graph().actor(center) == -1) {
+          System.out.println(bn.unknown(center));
+        } else {
+          bn.recenter(center);
+        }
       } else if (command.equals("findall")) {
+        System.out.print("Write to a file (ending in .gz to compress it), or press enter to print: ");
+        Scanner file = new Scanner(System.in);
+        String path = file.nextLine().trim();
         System.out.println(" ");
-        bn.findall();
+        if (path.isEmpty()) {
+          bn.findall();
+        } else {
+          long start = System.currentTimeMillis();
+          long actors = bn.findall(path);
+          System.out.println("Wrote " + actors + " actors to " + path + " in " + (System.currentTimeMillis() - start)
+                                + " ms");
+        }
       } else if (command.equals("most")) {
+        System.out.print("How many actors and movies? ");
+        Scanner count = new Scanner(System.in);
+        int n = Integer.parseInt(count.nextLine().trim());
         System.out.println(" ");
-        ArrayList<Vertex> movies = bn.most();
-        System.out.println(" ");
-        System.out.print("Would you like to print all the movies this actor has been in? (yes/no) ");
-        Scanner yes = new Scanner(System.in);
-        if (yes.nextLine().equals("yes")) {
-          System.out.println(movies);
+        int actor = bn.most(n);
+        if (actor != -1) {
+          System.out.println(" ");
+          System.out.print("Would you like to print the movies " + bn.graph().name(actor) + " has been in? (yes/no) ");
+          if (count.nextLine().equals("yes")) {
+            bn.movies(bn.graph().name(actor), LISTED);
+          }
         }
+      } else if (command.equals("credits")) {
+        System.out.print("Fewest film credits: ");
+        Scanner fewest = new Scanner(System.in);
+        int k = Integer.parseInt(fewest.nextLine().trim());
+        System.out.println(" ");
+        bn.credits(k);
       } else if (command.equals("longest")) {
         System.out.println(" ");
         bn.longest();
@@ -494,21 +1100,22 @@ public class BaconNumber {
         Scanner name = new Scanner(System.in);
         String nameactor = name.nextLine();
         if (bn.BNumber(nameactor) == -2) {
-          System.out.println("This actor doesn't exist in the database!");
+          System.out.println(bn.unknown(nameactor));
         } else {
           bn.movies(nameactor);
         }
       } else if (command.equals("topcenter")) {
         System.out.print("Calculate this many topcenters: ");
         Scanner input4 = new Scanner(System.in);
-        int topn = input4.nextInt();
-        bn.topcenter(topn);
+        int topn = Integer.parseInt(input4.nextLine().trim());
+        System.out.print("Estimate from a sample of actors first? Much faster on big databases (yes/no) ");
+        bn.topcenter(topn, input4.nextLine().equals("yes"));
       } else if (command.equals("bacon")) {
         System.out.print("Enter actor name: ");
         Scanner name = new Scanner(System.in);
         String nameactor = name.nextLine();
         if (bn.BNumber(nameactor) == -2) {
-          System.out.println("This actor doesn't exist in the database!");
+          System.out.println(bn.unknown(nameactor));
         } else {
           System.out.println(" ");
           System.out.print(bn.find(nameactor));
@@ -520,6 +1127,63 @@ public class BaconNumber {
           System.out.println(" ");
           bn.table();
         }
+      } else if (command.equals("connect")) {
+        System.out.print("Enter first actor name: ");
+        Scanner name = new Scanner(System.in);
+        String first = name.nextLine();
+        System.out.print("Enter second actor name: ");
+        String second = name.nextLine();
+        int distance = bn.distance(first, second);
+        if (distance == -2) {
+          System.out.println(bn.unknown(bn.graph().actor(first) == -1 ? first : second));
+        } else {
+          System.out.println(" ");
+          System.out.println(bn.connect(first, second) + " (" + distance + ")");
+        }
+      } else if (command.equals("cache")) {
+        System.out.println(" ");
+        System.out.println(bn.trees());
+      } else if (command.equals("update")) {
+        System.out.print("Enter update file: ");
+        Scanner file = new Scanner(System.in);
+        String path = file.nextLine();
+        if (Files.exists(Paths.get(path)) == false) {
+          System.out.println("Sorry, this file does not exist.");
+        } else {
+          long start = System.currentTimeMillis();
+          GraphUpdate.Result result = bn.update(GraphUpdate.read(Paths.get(path)));
+          System.out.println(" ");
+          System.out.println(result + ", " + bn.trees() + ", in " + (System.currentTimeMillis() - start) + " ms");
+        }
+      } else if (command.equals("stats")) {
+        System.out.println(" ");
+        System.out.print(Metrics.report());
+      } else if (command.equals("diameter")) {
+        System.out.println(" ");
+        bn.diameter();
+      } else if (command.equals("periphery")) {
+        System.out.println(" ");
+        bn.periphery();
+      } else if (command.equals("paths")) {
+        System.out.print("Enter actor name: ");
+        Scanner name = new Scanner(System.in);
+        String nameactor = name.nextLine();
+        double paths = bn.paths(nameactor);
+        System.out.println(" ");
+        if (paths == -2) {
+          System.out.println(bn.unknown(nameactor));
+        } else {
+          System.out.println(String.format("%.0f", paths) + " shortest paths lead from " + nameactor + " to "
+                                + bn.center);
+        }
+      } else if (command.equals("bridges")) {
+        System.out.print("Show this many actors and movies: ");
+        Scanner input5 = new Scanner(System.in);
+        int topn = Integer.parseInt(input5.nextLine().trim());
+        System.out.print("Search out of this many random actors, or 0 for all of them (slow on big databases): ");
+        int samples = Integer.parseInt(input5.nextLine().trim());
+        System.out.println(" ");
+        bn.bridges(topn, samples);
       } else if (command.equals("exit")) {
         keepRun = false;
       } else {
@@ -0,0 +1,725 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BaconServer.java Answers Kevin Bacon questions over HTTP with JSON, for any
+ * number of users at once. The graph is loaded once and never changes, so
+ * every request runs on its own thread (a virtual thread when the JVM has
+ * them) without any locking; center trees are shared through a
+ * CenterTreeCache, and a tree asked for by many requests at once is only
+ * built once.
+ *
+ * Endpoints, all GET except batch:
+ *
+ * /bacon?name=..&center=.. Bacon number of an actor.
+ * /path?name=..&center=.. path from an actor to the center.
+ * /connect?from=..&to=.. shortest path between two actors.
+ * /degrees?from=..&to=..&approximate=.. Bacon number between two actors from
+ * the LandmarkOracle, with its bounds; approximate=true never searches.
+ * /movies?name=.. movies of an actor.
+ * /suggest?name=..&k=.. actors whose name starts like name or is a few typos
+ * away from it.
+ * /table?center=.. number of actors at every Bacon number.
+ * /most?n=.. actor with the most credits and its movies, with the n (10 by
+ * default) actors with the most credits and movies with the largest casts.
+ * /credits?k=.. number of actors and movies with at least k credits or actors,
+ * with the first actors.
+ * /longest?center=.. one of the actors furthest from the center.
+ * /batch?center=.. (POST) Bacon numbers of every name in the body, one per line.
+ * /stats latency percentiles of every endpoint, the tree cache and the Metrics
+ * of every operation.
+ *
+ * center may always be left out for the server's default center. Unknown
+ * names are answered with 404, with suggestions, and missing parameters with
+ * 400.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class BaconServer {
+  /** Threads answering requests when the JVM has no virtual threads */
+  private static final int THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Center used when a request names none */
+  private String center;
+  /** Trees of recently used centers */
+  private CenterTreeCache trees;
+  /** Landmark distances, built when first needed unless given */
+  private volatile LandmarkOracle oracle;
+  /** Time taken by every endpoint */
+  private Map<String, LatencyHistogram> latency = new LinkedHashMap<String, LatencyHistogram>();
+  /** HTTP server, once started */
+  private HttpServer server;
+  /** Threads running the requests */
+  private ExecutorService executor;
+
+  /**
+   * An endpoint's answer to one request.
+   */
+  private interface Endpoint {
+    /**
+     * Answers a request.
+     *
+     * @param query
+     *            decoded query parameters.
+     * @param body
+     *            request body.
+     * @return JSON answer.
+     */
+    String answer(Map<String, String> query, String body);
+  }
+
+  /**
+   * Prepares a server over a loaded graph.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param center
+   *            default center, or null for the actor with the most
+   *            credits.
+   */
+  public BaconServer(Graph graph, String center) {
+    this.graph = graph;
+    this.trees = new CenterTreeCache(graph, CenterTreeCache.DEFAULT_BUDGET);
+    graph.index(); // built now, so the first name that is not found is answered right away
+    int[] most = graph.degrees().top(1, false);
+    this.center = center != null || most.length == 0 ? center : graph.name(most[0]);
+  }
+
+  /**
+   * Default center.
+   *
+   * @return name of the center.
+   */
+  public String center() {
+    return this.center;
+  }
+
+  /**
+   * Uses landmark distances that were already built or mapped.
+   *
+   * @param oracle
+   *            landmarks over this server's graph.
+   */
+  public void oracle(LandmarkOracle oracle) {
+    this.oracle = oracle;
+  }
+
+  /**
+   * Landmark distances, searching out of the landmarks the first time they
+   * are needed unless they were given.
+   *
+   * @return the oracle.
+   */
+  private LandmarkOracle oracle() {
+    LandmarkOracle oracle = this.oracle;
+    if (oracle == null) {
+      synchronized (this) {
+        if (this.oracle == null) {
+          this.oracle = new LandmarkOracle(this.graph, LandmarkOracle.DEFAULT_LANDMARKS,
+              LandmarkOracle.Selection.COVERAGE);
+        }
+        oracle = this.oracle;
+      }
+    }
+    return oracle;
+  }
+
+  /**
+   * Starts answering requests.
+   *
+   * @param port
+   *            port to listen on, 0 for any free port.
+   * @return the port listened on.
+   * @throws IOException
+   */
+  public int start(int port) throws IOException {
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) { // small answers would wait for delayed acks
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    this.server = HttpServer.create(new InetSocketAddress(port), 4096);
+    this.executor = requestExecutor();
+    this.server.setExecutor(this.executor);
+    endpoint("/bacon", (query, body) -> bacon(query));
+    endpoint("/path", (query, body) -> path(query));
+    endpoint("/connect", (query, body) -> connect(query));
+    endpoint("/degrees", (query, body) -> degrees(query));
+    endpoint("/movies", (query, body) -> movies(query));
+    endpoint("/suggest", (query, body) -> suggest(query));
+    endpoint("/table", (query, body) -> table(query));
+    endpoint("/most", (query, body) -> most(query));
+    endpoint("/credits", (query, body) -> credits(query));
+    endpoint("/longest", (query, body) -> longest(query));
+    endpoint("/batch", (query, body) -> batch(query, body));
+    endpoint("/stats", (query, body) -> stats());
+    this.server.start();
+    return this.server.getAddress().getPort();
+  }
+
+  /**
+   * Stops the server, letting running requests finish for up to a second.
+   */
+  public void stop() {
+    this.server.stop(1);
+    this.executor.shutdown();
+  }
+
+  /**
+   * A new virtual thread for every request when the JVM has them (Java 21
+   * and later), otherwise a fixed pool of threads.
+   *
+   * @return executor for requests.
+   */
+  static ExecutorService requestExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(THREADS);
+    }
+  }
+
+  /**
+   * Registers an endpoint, timing every request it answers.
+   *
+   * @param path
+   *            path of the endpoint.
+   * @param endpoint
+   *            what it answers.
+   */
+  private void endpoint(String path, Endpoint endpoint) {
+    LatencyHistogram histogram = new LatencyHistogram();
+    this.latency.put(path, histogram);
+    this.server.createContext(path, exchange -> {
+      long start = System.nanoTime();
+      int status = 200;
+      String json;
+      try {
+        String body = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+        json = endpoint.answer(query(exchange), body);
+      } catch (NoSuchElementException e) {
+        status = 404;
+        json = "{\"error\":" + quote(e.getMessage()) + "}";
+      } catch (IllegalArgumentException e) {
+        status = 400;
+        json = "{\"error\":" + quote(e.getMessage()) + "}";
+      } catch (RuntimeException e) {
+        status = 500;
+        json = "{\"error\":" + quote(String.valueOf(e)) + "}";
+      }
+      byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+      histogram.record(System.nanoTime() - start);
+    });
+  }
+
+  /**
+   * Bacon number of an actor.
+   *
+   * @param query
+   *            name and optional center.
+   * @return {"name", "center", "bacon"}, bacon being -1 if unreachable.
+   */
+  private String bacon(Map<String, String> query) {
+    String name = required(query, "name");
+    int actor = actor(name);
+    CenterTree tree = tree(query);
+    int distance = tree.distance(actor);
+    return "{\"name\":" + quote(name) + ",\"center\":" + quote(tree.center()) + ",\"bacon\":"
+        + (distance == -1 ? -1 : distance / 2) + "}";
+  }
+
+  /**
+   * Path from an actor to the center.
+   *
+   * @param query
+   *            name and optional center.
+   * @return {"name", "center", "bacon", "path"}, path being null if
+   *         unreachable.
+   */
+  private String path(Map<String, String> query) {
+    String name = required(query, "name");
+    int actor = actor(name);
+    CenterTree tree = tree(query);
+    return pathJson(tree, actor);
+  }
+
+  /**
+   * Path from an actor to the center of a tree.
+   *
+   * @param tree
+   *            tree of the center.
+   * @param actor
+   *            actor id.
+   * @return {"name", "center", "bacon", "path"}.
+   */
+  private String pathJson(CenterTree tree, int actor) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"name\":").append(quote(this.graph.name(actor)));
+    sb.append(",\"center\":").append(quote(tree.center()));
+    int distance = tree.distance(actor);
+    sb.append(",\"bacon\":").append(distance == -1 ? -1 : distance / 2);
+    sb.append(",\"path\":");
+    if (distance == -1) {
+      sb.append("null}");
+      return sb.toString();
+    }
+    sb.append('[');
+    for (int v = actor; v != -1; v = tree.parent(v)) {
+      if (v != actor) {
+        sb.append(',');
+      }
+      sb.append(quote(this.graph.name(v)));
+    }
+    return sb.append("]}").toString();
+  }
+
+  /**
+   * Shortest path between two actors, searched from both ends.
+   *
+   * @param query
+   *            from and to.
+   * @return {"from", "to", "distance", "path"}, path being null if they are
+   *         not connected.
+   */
+  private String connect(Map<String, String> query) {
+    String from = required(query, "from");
+    String to = required(query, "to");
+    int[] path = GraphSearch.shortestPath(this.graph, actor(from), actor(to));
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"from\":").append(quote(from)).append(",\"to\":").append(quote(to));
+    sb.append(",\"distance\":").append(path == null ? -1 : (path.length - 1) / 2);
+    sb.append(",\"path\":").append(path == null ? "null" : names(path, 0, path.length));
+    return sb.append('}').toString();
+  }
+
+  /**
+   * Bacon number between two actors out of the landmarks, fast enough to
+   * answer as someone types.
+   *
+   * @param query
+   *            from, to and optional approximate.
+   * @return {"from", "to", "lower", "upper", "distance"}, distance being -1
+   *         if they are not connected and null if approximate and the
+   *         bounds do not meet.
+   */
+  private String degrees(Map<String, String> query) {
+    String from = required(query, "from");
+    String to = required(query, "to");
+    int a = actor(from);
+    int b = actor(to);
+    LandmarkOracle oracle = oracle();
+    LandmarkOracle.Bounds bounds = oracle.bounds(a, b);
+    String distance;
+    if (bounds.exact()) {
+      distance = Integer.toString(bounds.lower);
+    } else if ("true".equals(query.get("approximate"))) {
+      distance = "null";
+    } else {
+      distance = Integer.toString(oracle.distance(a, b));
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"from\":").append(quote(from)).append(",\"to\":").append(quote(to));
+    sb.append(",\"lower\":").append(bounds.lower);
+    sb.append(",\"upper\":").append(bounds.upper == Integer.MAX_VALUE ? "null" : Integer.toString(bounds.upper));
+    sb.append(",\"distance\":").append(distance);
+    return sb.append('}').toString();
+  }
+
+  /**
+   * Movies of an actor.
+   *
+   * @param query
+   *            name.
+   * @return {"name", "movies"}.
+   */
+  private String movies(Map<String, String> query) {
+    String name = required(query, "name");
+    int actor = actor(name);
+    return "{\"name\":" + quote(name) + ",\"movies\":" + neighbors(actor) + "}";
+  }
+
+  /**
+   * Actors whose name starts like a name or is a few typos away from it.
+   *
+   * @param query
+   *            name and optional k, the most names returned (5 by default).
+   * @return {"name", "suggestions"}.
+   */
+  private String suggest(Map<String, String> query) {
+    String name = required(query, "name");
+    int k = query.containsKey("k") ? Integer.parseInt(query.get("k")) : BaconNumber.SUGGESTIONS;
+    int[] suggestions = this.graph.index().suggest(name, k);
+    return "{\"name\":" + quote(name) + ",\"suggestions\":" + names(suggestions, 0, suggestions.length) + "}";
+  }
+
+  /**
+   * Number of actors at every Bacon number.
+   *
+   * @param query
+   *            optional center.
+   * @return {"center", "counts", "unreachable", "average"}.
+   */
+  private String table(Map<String, String> query) {
+    CenterTree tree = tree(query);
+    long[] counts = new long[64];
+    long unreachable = 0;
+    int max = 0;
+    for (int a = 0; a < this.graph.actorCount(); a++) {
+      int distance = tree.distance(a);
+      if (distance == -1) {
+        unreachable++;
+        continue;
+      }
+      int bacon = distance / 2;
+      if (bacon >= counts.length) {
+        counts = Arrays.copyOf(counts, bacon * 2);
+      }
+      counts[bacon]++;
+      max = Math.max(max, bacon);
+    }
+    long reach = 0;
+    long total = 0;
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"center\":").append(quote(tree.center())).append(",\"counts\":[");
+    for (int b = 0; b <= max; b++) {
+      sb.append(b > 0 ? "," : "").append(counts[b]);
+      reach += counts[b];
+      total += b * counts[b];
+    }
+    sb.append("],\"unreachable\":").append(unreachable);
+    sb.append(",\"average\":").append(reach == 0 ? 0 : (double) total / reach);
+    return sb.append('}').toString();
+  }
+
+  /**
+   * Actor with the most credits, and the actors and movies with the largest
+   * degree.
+   *
+   * @param query
+   *            optional n, the number of actors and movies ranked.
+   * @return {"name", "credits", "movies", "actors", "casts"}.
+   */
+  private String most(Map<String, String> query) {
+    int n = query.containsKey("n") ? Integer.parseInt(query.get("n")) : 10;
+    DegreeIndex degrees = this.graph.degrees();
+    int[] actors = degrees.top(Math.max(1, n), false);
+    if (actors.length == 0) {
+      throw new NoSuchElementException("There are no actors");
+    }
+    return "{\"name\":" + quote(this.graph.name(actors[0])) + ",\"credits\":" + this.graph.degree(actors[0])
+        + ",\"movies\":" + neighbors(actors[0]) + ",\"actors\":" + degrees(actors, n) + ",\"casts\":"
+        + degrees(degrees.top(n, true), n) + "}";
+  }
+
+  /**
+   * Number of actors with at least k credits and of movies with at least k
+   * actors.
+   *
+   * @param query
+   *            k, and optional limit, the most actors listed (50 by default).
+   * @return {"k", "actors", "movies", "names"}.
+   */
+  private String credits(Map<String, String> query) {
+    int k = Integer.parseInt(required(query, "k"));
+    int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : BaconNumber.LISTED;
+    DegreeIndex degrees = this.graph.degrees();
+    int count = degrees.count(k, false);
+    int[] actors = degrees.top(Math.min(count, limit), false);
+    return "{\"k\":" + k + ",\"actors\":" + count + ",\"movies\":" + degrees.count(k, true) + ",\"names\":"
+        + degrees(actors, actors.length) + "}";
+  }
+
+  /**
+   * Names and degrees of vertices as a JSON array.
+   *
+   * @param ids
+   *            vertex ids.
+   * @param n
+   *            most entries.
+   * @return [{"name", "degree"}, ...].
+   */
+  private String degrees(int[] ids, int n) {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < Math.min(n, ids.length); i++) {
+      sb.append(i > 0 ? "," : "").append("{\"name\":").append(quote(this.graph.name(ids[i])))
+          .append(",\"degree\":").append(this.graph.degree(ids[i])).append('}');
+    }
+    return sb.append(']').toString();
+  }
+
+  /**
+   * One of the actors furthest from the center, and their path.
+   *
+   * @param query
+   *            optional center.
+   * @return same as path.
+   * @throws NoSuchElementException
+   *             if nobody is connected to the center.
+   */
+  private String longest(Map<String, String> query) {
+    CenterTree tree = tree(query);
+    int[] farthest = tree.farthest();
+    if (farthest.length == 0) {
+      throw new NoSuchElementException("Nobody is connected to " + tree.center());
+    }
+    return pathJson(tree, farthest[0]);
+  }
+
+  /**
+   * Bacon numbers of many actors in one request, all read from one tree.
+   *
+   * @param query
+   *            optional center.
+   * @param body
+   *            actor names, one per line.
+   * @return {"center", "results": [{"name", "bacon"}]}, bacon being -2 for
+   *         unknown names and -1 if unreachable.
+   */
+  private String batch(Map<String, String> query, String body) {
+    CenterTree tree = tree(query);
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"center\":").append(quote(tree.center())).append(",\"results\":[");
+    boolean first = true;
+    for (String name : body.split("\n")) {
+      name = name.strip();
+      if (name.isEmpty()) {
+        continue;
+      }
+      int actor = this.graph.actor(name);
+      int bacon = actor == -1 ? -2 : tree.distance(actor) == -1 ? -1 : tree.distance(actor) / 2;
+      sb.append(first ? "" : ",").append("{\"name\":").append(quote(name)).append(",\"bacon\":").append(bacon)
+          .append('}');
+      first = false;
+    }
+    return sb.append("]}").toString();
+  }
+
+  /**
+   * Latency of every endpoint and the state of the tree cache.
+   *
+   * @return {"/endpoint": {"count", percentiles...}, "cache", "operations"}.
+   */
+  private String stats() {
+    StringBuilder sb = new StringBuilder("{");
+    for (Map.Entry<String, LatencyHistogram> endpoint : this.latency.entrySet()) {
+      sb.append(quote(endpoint.getKey())).append(':').append(endpoint.getValue().toJson()).append(',');
+    }
+    sb.append("\"cache\":").append(quote(this.trees.toString()));
+    sb.append(",\"operations\":").append(Metrics.toJson());
+    return sb.append('}').toString();
+  }
+
+  /**
+   * Tree of the center a request names, or of the default center.
+   *
+   * @param query
+   *            query parameters.
+   * @return tree of the center.
+   */
+  private CenterTree tree(Map<String, String> query) {
+    String center = query.getOrDefault("center", this.center);
+    actor(center);
+    return this.trees.get(center);
+  }
+
+  /**
+   * Id of an actor.
+   *
+   * @param name
+   *            actor name.
+   * @return actor id.
+   * @throws NoSuchElementException
+   *             if there is no such actor.
+   */
+  private int actor(String name) {
+    int actor = this.graph.actor(name);
+    if (actor == -1) {
+      int[] suggestions = this.graph.index().suggest(name, BaconNumber.SUGGESTIONS);
+      StringBuilder sb = new StringBuilder("no actor named ").append(name);
+      for (int i = 0; i < suggestions.length; i++) {
+        sb.append(i == 0 ? ", did you mean " : ", ").append(this.graph.name(suggestions[i]));
+      }
+      throw new NoSuchElementException(sb.toString());
+    }
+    return actor;
+  }
+
+  /**
+   * A query parameter that must be there.
+   *
+   * @param query
+   *            query parameters.
+   * @param key
+   *            parameter name.
+   * @return parameter value.
+   * @throws IllegalArgumentException
+   *             if it is missing.
+   */
+  private static String required(Map<String, String> query, String key) {
+    String value = query.get(key);
+    if (value == null) {
+      throw new IllegalArgumentException("missing parameter " + key);
+    }
+    return value;
+  }
+
+  /**
+   * Names of the neighbors of a vertex as a JSON array.
+   *
+   * @param v
+   *            vertex id.
+   * @return JSON array of names.
+   */
+  private String neighbors(int v) {
+    IntBuffer offsets = this.graph.offsets();
+    int[] ids = new int[this.graph.degree(v)];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = this.graph.adjacency().get(offsets.get(v) + i);
+    }
+    return names(ids, 0, ids.length);
+  }
+
+  /**
+   * Names of vertices as a JSON array.
+   *
+   * @param ids
+   *            vertex ids.
+   * @param from
+   *            first index.
+   * @param to
+   *            one past the last index.
+   * @return JSON array of names.
+   */
+  private String names(int[] ids, int from, int to) {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = from; i < to; i++) {
+      sb.append(i > from ? "," : "").append(quote(this.graph.name(ids[i])));
+    }
+    return sb.append(']').toString();
+  }
+
+  /**
+   * Decodes the query parameters of a request.
+   *
+   * @param exchange
+   *            request.
+   * @return parameters by name.
+   */
+  private static Map<String, String> query(HttpExchange exchange) {
+    Map<String, String> query = new HashMap<String, String>();
+    String raw = exchange.getRequestURI().getRawQuery();
+    if (raw == null) {
+      return query;
+    }
+    for (String pair : raw.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0) {
+        query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return query;
+  }
+
+  /**
+   * Reads a whole request body.
+   *
+   * @param in
+   *            request body.
+   * @return its bytes.
+   * @throws IOException
+   */
+  private static byte[] readAll(InputStream in) throws IOException {
+    try (InputStream body = in) {
+      return body.readAllBytes();
+    }
+  }
+
+  /**
+   * Writes a string as a JSON string literal.
+   *
+   * @param s
+   *            string, may be null.
+   * @return quoted and escaped string.
+   */
+  static String quote(String s) {
+    if (s == null) {
+      return "null";
+    }
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  /**
+   * Serves a snapshot or database: BaconServer file [port] [center].
+   *
+   * @param args
+   *            snapshot, text database or url, then the port (8080 by
+   *            default) and the default center.
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("usage: BaconServer <snapshot|file|url> [port] [center]");
+      return;
+    }
+    long start = System.currentTimeMillis();
+    Graph graph;
+    try {
+      graph = GraphSnapshot.open(Paths.get(args[0]));
+    } catch (IOException | RuntimeException e) { // not a snapshot, read it as a database
+      graph = new BaconNumber(args[0], "none").graph();
+    }
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+    String center = args.length > 2 ? args[2] : "Kevin Bacon (I)";
+    if (graph.actor(center) == -1) { // Kevin Bacon is not in every database
+      center = null;
+    }
+    BaconServer server = new BaconServer(graph, center);
+    Path landmarks = Paths.get(args[0] + ".landmarks");
+    if (Files.exists(landmarks)) { // written next to the snapshot by compile
+      try {
+        server.oracle(LandmarkOracle.open(landmarks, graph));
+      } catch (IOException e) { // left over from another snapshot, search instead
+        System.out.println("Not using landmarks: " + e.getMessage());
+      }
+    }
+    port = server.start(port);
+    System.out.println("Serving " + graph.actorCount() + " actors and " + graph.movieCount() + " movies on port "
+        + port + " with center " + server.center() + " (ready in " + (System.currentTimeMillis() - start) + " ms)");
+  }
+}
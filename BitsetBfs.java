@@ -0,0 +1,402 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * BitsetBfs.java Breadth first search over the whole graph for sweeps such as
+ * the center tree and topcenter. The frontier and visited sets are packed
+ * bitsets, and every level is expanded in whichever direction is cheaper:
+ * top-down (each frontier vertex looks at its neighbors) while the frontier
+ * is small, and bottom-up (each unvisited vertex asks whether any neighbor is
+ * in the frontier, stopping at the first one) for the few huge middle levels
+ * that cover most of the actors. Because the graph is bipartite, a level of
+ * actors is always followed by a level of movies, so bottom-up steps only
+ * look at vertices of the right kind.
+ *
+ * An instance keeps its bitsets between runs and must only be used by one
+ * thread at a time. In parallel mode each level is split across the common
+ * fork-join pool.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class BitsetBfs {
+  /** Go bottom-up once the frontier's edges exceed 1/ALPHA of the unvisited edges */
+  private static final int ALPHA = 14;
+  /** Go back top-down once the frontier has fewer than 1/BETA of the vertices */
+  private static final int BETA = 24;
+  /** Vertices per parallel task, a multiple of 64 so tasks never share a word */
+  private static final int CHUNK = 64 * 256;
+  /** Neighbors seen by a task that found none */
+  private static final int[] NONE = new int[0];
+
+  /**
+   * Hears about every level as it is finished.
+   */
+  public interface LevelListener {
+    /**
+     * Called after every level.
+     *
+     * @param hops
+     *            distance of the level from the source.
+     * @param found
+     *            number of vertices in the level.
+     * @return false to stop the search here.
+     */
+    boolean level(int hops, int found);
+  }
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Whether levels are split across threads */
+  private boolean parallel;
+  /** Vertices reached so far */
+  private long[] visited;
+  /** Vertices of the current level */
+  private long[] frontier;
+  /** Vertices of the level being built */
+  private long[] next;
+  /** Vertices found by the last step */
+  private int found;
+  /** Sum of the degrees of the vertices found by the last step */
+  private long foundEdges;
+  /** Edges looked at by the last bottom-up step */
+  private long scanned;
+
+  /**
+   * Constructs a search kernel for a graph.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param parallel
+   *            whether to split each level across threads.
+   */
+  public BitsetBfs(Graph graph, boolean parallel) {
+    this.graph = graph;
+    this.parallel = parallel;
+    int words = (graph.vertexCount() + 63) >>> 6;
+    this.visited = new long[words];
+    this.frontier = new long[words];
+    this.next = new long[words];
+  }
+
+  /**
+   * Searches the graph out of one vertex.
+   *
+   * @param source
+   *            vertex to start at.
+   * @param distance
+   *            filled with the distance of every vertex, -1 if unreachable;
+   *            may be null.
+   * @param parent
+   *            filled with the vertex each vertex was reached from, -1 for
+   *            the source and unreachable vertices; may be null.
+   * @param listener
+   *            told about every level and able to stop the search; may be
+   *            null.
+   * @return number of levels after the source.
+   */
+  public int run(int source, int[] distance, int[] parent, LevelListener listener) {
+    Arrays.fill(this.visited, 0);
+    Arrays.fill(this.frontier, 0);
+    if (distance != null) {
+      Arrays.fill(distance, -1);
+      distance[source] = 0;
+    }
+    if (parent != null) {
+      Arrays.fill(parent, -1);
+    }
+    set(this.visited, source);
+    set(this.frontier, source);
+
+    int vertexCount = this.graph.vertexCount();
+    long frontierEdges = this.graph.degree(source);
+    long uncheckedEdges = this.graph.adjacency().limit() - frontierEdges;
+    int frontierSize = 1;
+    boolean bottomUp = false;
+    boolean frontierIsActors = this.graph.isActor(source);
+    int hops = 0;
+    long expanded = 0; // vertices and edges, handed to Metrics once at the end
+    long scanned = 0;
+    while (frontierSize > 0) {
+      if (bottomUp == false && frontierEdges > uncheckedEdges / ALPHA) {
+        bottomUp = true;
+      } else if (bottomUp && frontierSize < vertexCount / BETA) {
+        bottomUp = false;
+      }
+      int low = frontierIsActors ? this.graph.actorCount() : 0; // the next level is the other kind
+      int high = frontierIsActors ? vertexCount : this.graph.actorCount();
+      Arrays.fill(this.next, 0);
+      Metrics.level(hops, frontierSize);
+      expanded += frontierSize;
+      if (bottomUp) {
+        bottomUp(low, high, hops + 1, distance, parent);
+        scanned += this.scanned;
+      } else {
+        scanned += frontierEdges;
+        topDown(frontierIsActors ? 0 : this.graph.actorCount(), frontierIsActors ? this.graph.actorCount()
+            : vertexCount, hops + 1, distance, parent);
+      }
+      long[] swap = this.frontier;
+      this.frontier = this.next;
+      this.next = swap;
+      frontierSize = this.found;
+      frontierEdges = this.foundEdges;
+      uncheckedEdges -= frontierEdges;
+      frontierIsActors = !frontierIsActors;
+      hops++;
+      if (frontierSize > 0 && listener != null && listener.level(hops, frontierSize) == false) {
+        break;
+      }
+    }
+    Metrics.searched(expanded, scanned);
+    return frontierSize > 0 ? hops : hops - 1;
+  }
+
+  /**
+   * Expands the frontier by looking at the neighbors of every frontier
+   * vertex.
+   *
+   * @param low
+   *            first vertex that can be in the frontier.
+   * @param high
+   *            one past the last vertex that can be in the frontier.
+   * @param hops
+   *            distance of the level being built.
+   * @param distance
+   *            distances to fill in, or null.
+   * @param parent
+   *            parents to fill in, or null.
+   */
+  private void topDown(int low, int high, int hops, int[] distance, int[] parent) {
+    if (this.parallel && high - low > CHUNK) {
+      topDownParallel(low, high, hops, distance, parent);
+      return;
+    }
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    int found = 0;
+    long foundEdges = 0;
+    for (int word = low >>> 6; word <= (high - 1) >>> 6; word++) {
+      long bits = this.frontier[word];
+      while (bits != 0) {
+        int u = (word << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        for (int e = offsets.get(u); e < offsets.get(u + 1); e++) {
+          int v = adjacency.get(e);
+          if (get(this.visited, v) == false) {
+            set(this.visited, v);
+            set(this.next, v);
+            if (distance != null) {
+              distance[v] = hops;
+            }
+            if (parent != null) {
+              parent[v] = u;
+            }
+            found++;
+            foundEdges += offsets.get(v + 1) - offsets.get(v);
+          }
+        }
+      }
+    }
+    this.found = found;
+    this.foundEdges = foundEdges;
+  }
+
+  /**
+   * Top-down step split across threads. Each task walks the set bits of a
+   * run of frontier words, skipping empty words, only reads the bitsets and
+   * collects the neighbors it saw, and the results are merged on this thread,
+   * so no two threads ever write the same word.
+   *
+   * @param low
+   *            first vertex that can be in the frontier.
+   * @param high
+   *            one past the last vertex that can be in the frontier.
+   * @param hops
+   *            distance of the level being built.
+   * @param distance
+   *            distances to fill in, or null.
+   * @param parent
+   *            parents to fill in, or null.
+   */
+  private void topDownParallel(int low, int high, int hops, int[] distance, int[] parent) {
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    int firstWord = low >>> 6;
+    int lastWord = (high - 1) >>> 6;
+    int chunkWords = CHUNK >>> 6;
+    int chunks = (lastWord - firstWord + chunkWords) / chunkWords;
+    int[][] seen = new int[chunks][];
+    IntStream.range(0, chunks).parallel().forEach(c -> {
+      int[] pairs = NONE; // most chunks of a small frontier have nobody in it
+      int size = 0;
+      int from = firstWord + c * chunkWords;
+      int to = Math.min(lastWord + 1, from + chunkWords);
+      for (int word = from; word < to; word++) {
+        long bits = this.frontier[word];
+        while (bits != 0) { // only the set bits, like topDown
+          int u = (word << 6) + Long.numberOfTrailingZeros(bits);
+          bits &= bits - 1;
+          for (int e = offsets.get(u); e < offsets.get(u + 1); e++) {
+            int v = adjacency.get(e);
+            if (get(this.visited, v) == false) {
+              if (size + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, Math.max(64, pairs.length * 2));
+              }
+              pairs[size++] = v;
+              pairs[size++] = u;
+            }
+          }
+        }
+      }
+      seen[c] = size == pairs.length ? pairs : Arrays.copyOf(pairs, size);
+    });
+    int found = 0;
+    long foundEdges = 0;
+    for (int[] pairs : seen) {
+      for (int i = 0; i < pairs.length; i += 2) {
+        int v = pairs[i];
+        if (get(this.visited, v) == false) {
+          set(this.visited, v);
+          set(this.next, v);
+          if (distance != null) {
+            distance[v] = hops;
+          }
+          if (parent != null) {
+            parent[v] = pairs[i + 1];
+          }
+          found++;
+          foundEdges += offsets.get(v + 1) - offsets.get(v);
+        }
+      }
+    }
+    this.found = found;
+    this.foundEdges = foundEdges;
+  }
+
+  /**
+   * Expands the frontier by asking every unvisited vertex of the right kind
+   * whether any of its neighbors is in the frontier.
+   *
+   * @param low
+   *            first vertex that can be in the next level.
+   * @param high
+   *            one past the last vertex that can be in the next level.
+   * @param hops
+   *            distance of the level being built.
+   * @param distance
+   *            distances to fill in, or null.
+   * @param parent
+   *            parents to fill in, or null.
+   */
+  private void bottomUp(int low, int high, int hops, int[] distance, int[] parent) {
+    if (this.parallel && high - low > CHUNK) {
+      int first = low & ~63; // chunks start on word boundaries so tasks never share a word
+      int chunks = (high - first + CHUNK - 1) / CHUNK;
+      long[] counts = new long[chunks * 3];
+      IntStream.range(0, chunks).parallel().forEach(c -> {
+        int from = Math.max(low, first + c * CHUNK);
+        int to = Math.min(high, first + (c + 1) * CHUNK);
+        bottomUpRange(from, to, hops, distance, parent, counts, c);
+      });
+      this.found = 0;
+      this.foundEdges = 0;
+      this.scanned = 0;
+      for (int c = 0; c < chunks; c++) {
+        this.found += (int) counts[3 * c];
+        this.foundEdges += counts[3 * c + 1];
+        this.scanned += counts[3 * c + 2];
+      }
+    } else {
+      long[] counts = new long[3];
+      bottomUpRange(low, high, hops, distance, parent, counts, 0);
+      this.found = (int) counts[0];
+      this.foundEdges = counts[1];
+      this.scanned = counts[2];
+    }
+  }
+
+  /**
+   * Bottom-up step over one range of vertices.
+   *
+   * @param from
+   *            first vertex.
+   * @param to
+   *            one past the last vertex.
+   * @param hops
+   *            distance of the level being built.
+   * @param distance
+   *            distances to fill in, or null.
+   * @param parent
+   *            parents to fill in, or null.
+   * @param counts
+   *            vertices found, their degrees and the edges looked at are
+   *            stored at 3 * slot, 3 * slot + 1 and 3 * slot + 2.
+   * @param slot
+   *            where to store the counts.
+   */
+  private void bottomUpRange(int from, int to, int hops, int[] distance, int[] parent, long[] counts, int slot) {
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    long found = 0;
+    long foundEdges = 0;
+    long scanned = 0;
+    for (int v = from; v < to; v++) {
+      if (this.visited[v >>> 6] == -1L) { // the whole word is done, skip to the next one
+        v |= 63;
+        continue;
+      }
+      if (get(this.visited, v)) {
+        continue;
+      }
+      int end = offsets.get(v + 1);
+      int e = offsets.get(v);
+      for (; e < end; e++) {
+        int u = adjacency.get(e);
+        if (get(this.frontier, u)) { // one neighbor in the frontier is enough
+          set(this.visited, v);
+          set(this.next, v);
+          if (distance != null) {
+            distance[v] = hops;
+          }
+          if (parent != null) {
+            parent[v] = u;
+          }
+          found++;
+          foundEdges += end - offsets.get(v);
+          break;
+        }
+      }
+      scanned += Math.min(end, e + 1) - offsets.get(v); // up to and with the neighbor found
+    }
+    counts[3 * slot] = found;
+    counts[3 * slot + 1] = foundEdges;
+    counts[3 * slot + 2] = scanned;
+  }
+
+  /**
+   * Whether a vertex is in a bitset.
+   *
+   * @param bits
+   *            bitset.
+   * @param v
+   *            vertex id.
+   * @return true if the bit is set.
+   */
+  private static boolean get(long[] bits, int v) {
+    return (bits[v >>> 6] & (1L << v)) != 0;
+  }
+
+  /**
+   * Adds a vertex to a bitset.
+   *
+   * @param bits
+   *            bitset.
+   * @param v
+   *            vertex id.
+   */
+  private static void set(long[] bits, int v) {
+    bits[v >>> 6] |= 1L << v;
+  }
+}
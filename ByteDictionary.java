@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * ByteDictionary.java Gives every distinct UTF-8 name a dense id, in the order
+ * the names are first added. Names are copied into one growing byte arena and
+ * found again through an open addressing hash table, so adding a name that is
+ * already there allocates nothing.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class ByteDictionary {
+  /** UTF-8 bytes of every name, one after the other */
+  private byte[] arena = new byte[1 << 16];
+  /** Number of bytes of arena in use */
+  private int arenaSize;
+  /** Where every name starts in arena, with one extra entry at the end */
+  private int[] starts = new int[1025];
+  /** Hash of every name, kept so the table can grow without rehashing bytes */
+  private int[] hashes = new int[1024];
+  /** Number of names */
+  private int size;
+  /** Id + 1 of the name in each slot, 0 for an empty slot */
+  private int[] table = new int[2048];
+
+  /**
+   * Number of names in the dictionary.
+   *
+   * @return number of names.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the id of a name, adding it if it is not there yet.
+   *
+   * @param bytes
+   *            array holding the name.
+   * @param from
+   *            first byte of the name.
+   * @param to
+   *            one past the last byte of the name.
+   * @return id of the name.
+   */
+  public int add(byte[] bytes, int from, int to) {
+    int hash = hash(bytes, from, to);
+    int mask = this.table.length - 1;
+    int slot = hash & mask;
+    while (this.table[slot] != 0) {
+      int id = this.table[slot] - 1;
+      if (this.hashes[id] == hash && equals(id, bytes, from, to)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    int id = this.size;
+    int length = to - from;
+    if (this.arenaSize + length > this.arena.length) {
+      this.arena = Arrays.copyOf(this.arena, Math.max(this.arena.length * 2, this.arenaSize + length));
+    }
+    if (id + 1 == this.hashes.length) {
+      this.hashes = Arrays.copyOf(this.hashes, this.hashes.length * 2);
+      this.starts = Arrays.copyOf(this.starts, this.hashes.length + 1);
+    }
+    System.arraycopy(bytes, from, this.arena, this.arenaSize, length);
+    this.starts[id] = this.arenaSize;
+    this.arenaSize += length;
+    this.starts[id + 1] = this.arenaSize;
+    this.hashes[id] = hash;
+    this.table[slot] = id + 1;
+    this.size++;
+    if (this.size * 2 > this.table.length) { // keep the table at most half full
+      grow();
+    }
+    return id;
+  }
+
+  /**
+   * Adds the name with the given id in another dictionary.
+   *
+   * @param other
+   *            dictionary the name comes from.
+   * @param id
+   *            id of the name in other.
+   * @return id of the name in this dictionary.
+   */
+  public int add(ByteDictionary other, int id) {
+    return add(other.arena, other.starts[id], other.starts[id + 1]);
+  }
+
+  /**
+   * Start of a name in arena().
+   *
+   * @param id
+   *            id of the name.
+   * @return index of the first byte.
+   */
+  public int start(int id) {
+    return this.starts[id];
+  }
+
+  /**
+   * End of a name in arena().
+   *
+   * @param id
+   *            id of the name.
+   * @return index one past the last byte.
+   */
+  public int end(int id) {
+    return this.starts[id + 1];
+  }
+
+  /**
+   * The bytes of every name. Shared with the caller, so it must not be
+   * changed.
+   *
+   * @return name bytes.
+   */
+  public byte[] arena() {
+    return this.arena;
+  }
+
+  /**
+   * Doubles the hash table and puts every id back in it.
+   */
+  private void grow() {
+    int[] table = new int[this.table.length * 2];
+    int mask = table.length - 1;
+    for (int id = 0; id < this.size; id++) {
+      int slot = this.hashes[id] & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id + 1;
+    }
+    this.table = table;
+  }
+
+  /**
+   * Whether a name in the dictionary has the same bytes as a name elsewhere.
+   *
+   * @param id
+   *            id of the name in the dictionary.
+   * @param bytes
+   *            array holding the other name.
+   * @param from
+   *            first byte of the other name.
+   * @param to
+   *            one past the last byte of the other name.
+   * @return true if the bytes match.
+   */
+  private boolean equals(int id, byte[] bytes, int from, int to) {
+    return Arrays.equals(this.arena, this.starts[id], this.starts[id + 1], bytes, from, to);
+  }
+
+  /**
+   * Hash of a run of bytes.
+   *
+   * @param bytes
+   *            array holding the name.
+   * @param from
+   *            first byte of the name.
+   * @param to
+   *            one past the last byte of the name.
+   * @return mixed hash code.
+   */
+  private static int hash(byte[] bytes, int from, int to) {
+    int hash = 0;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + bytes[i];
+    }
+    hash *= 0x9E3779B9; // spread names that only differ at the end
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,300 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * CenterTree.java The result of one breadth first search out of a center: the
+ * distance of every vertex to the center. A tree never changes once built, so
+ * any number of threads can read it while the game moves on to another
+ * center.
+ *
+ * Bacon numbers are small, so distances are kept one byte per vertex (an int
+ * per vertex only if some distance does not fit). Parents are not stored at
+ * all: the next step towards the center is any neighbor one step closer,
+ * which is found by looking at the neighbors when a path is asked for.
+ *
+ * When the graph is updated, repair() makes the tree of the new graph from
+ * this one by only visiting the actors and movies whose distance could have
+ * changed.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class CenterTree {
+  /** Actors and movies the tree was built over */
+  private Graph graph;
+  /** Name of the center */
+  private String center;
+  /** Distance of every vertex to the center (movies count as a step), -1 if unreachable */
+  private byte[] distance;
+  /** Used instead of distance when some distance is larger than a byte */
+  private int[] wideDistance;
+
+  /**
+   * Searches the whole graph out of a center.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param center
+   *            name of the center; a name that is not an actor reaches
+   *            nobody.
+   */
+  public CenterTree(Graph graph, String center) {
+    this.graph = graph;
+    this.center = center;
+    int[] distance = new int[graph.vertexCount()];
+    int root = graph.actor(center);
+    int levels = 0;
+    if (root == -1) {
+      Arrays.fill(distance, -1);
+    } else {
+      levels = new BitsetBfs(graph, Runtime.getRuntime().availableProcessors() > 1).run(root, distance, null, null);
+    }
+    pack(distance, levels);
+  }
+
+  /**
+   * Constructs a tree out of distances that are already known.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param center
+   *            name of the center.
+   * @param distance
+   *            distance of every vertex, -1 if unreachable.
+   * @param levels
+   *            largest distance.
+   */
+  private CenterTree(Graph graph, String center, int[] distance, int levels) {
+    this.graph = graph;
+    this.center = center;
+    pack(distance, levels);
+  }
+
+  /**
+   * Keeps distances in a byte each if they fit.
+   *
+   * @param distance
+   *            distance of every vertex, -1 if unreachable.
+   * @param levels
+   *            largest distance.
+   */
+  private void pack(int[] distance, int levels) {
+    if (levels > Byte.MAX_VALUE) {
+      this.wideDistance = distance;
+    } else {
+      this.distance = new byte[distance.length];
+      for (int v = 0; v < distance.length; v++) {
+        this.distance[v] = (byte) distance[v];
+      }
+    }
+  }
+
+  /**
+   * Makes the tree of the same center in an updated graph. Only vertices
+   * near the changed credits are looked at:
+   *
+   * 1. A removed credit can take away the only neighbor one step closer to
+   * the center. Such vertices, in order of distance, lose their distance, and
+   * so may the vertices they were the only way in for.
+   *
+   * 2. Every vertex that lost its distance gets one more than its best
+   * neighbor that kept one, and every added credit offers a shorter way to
+   * the vertex at its far end.
+   *
+   * 3. Shorter distances spread out from there, closest first, like
+   * Dijkstra's algorithm, until nothing gets shorter.
+   *
+   * @param update
+   *            the update, applied to the graph this tree was built over.
+   * @return tree of the updated graph.
+   */
+  public CenterTree repair(GraphUpdate.Result update) {
+    Graph graph = update.graph;
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    int[] distance = new int[graph.vertexCount()];
+    Arrays.fill(distance, Integer.MAX_VALUE); // unreachable, until shown otherwise
+    for (int v = 0; v < update.before.vertexCount(); v++) {
+      if (distance(v) != -1) {
+        distance[update.renamed(v)] = distance(v);
+      }
+    }
+    int root = graph.actor(this.center);
+    PriorityQueue<Long> queue = new PriorityQueue<Long>(); // distance in the high half, vertex in the low half
+    if (root != -1 && distance[root] != 0) { // the center was just added
+      distance[root] = 0;
+      queue.add((long) root);
+    }
+
+    // LOST DISTANCES//
+    int[] removed = update.removed();
+    PriorityQueue<Long> candidates = new PriorityQueue<Long>();
+    for (int i = 0; i < removed.length; i += 2) {
+      int a = removed[i];
+      int m = removed[i + 1];
+      if (distance[a] != Integer.MAX_VALUE && distance[m] != Integer.MAX_VALUE) {
+        int far = distance[a] > distance[m] ? a : m;
+        candidates.add(((long) distance[far] << 32) | far);
+      }
+    }
+    boolean[] lost = new boolean[graph.vertexCount()];
+    ArrayList<Integer> lostList = new ArrayList<Integer>();
+    while (candidates.isEmpty() == false) {
+      int v = (int) (long) candidates.poll();
+      int d = distance[v];
+      if (lost[v] || d == 0) {
+        continue;
+      }
+      boolean supported = false;
+      for (int e = offsets.get(v); e < offsets.get(v + 1) && supported == false; e++) {
+        int w = adjacency.get(e);
+        supported = distance[w] == d - 1 && lost[w] == false;
+      }
+      if (supported) {
+        continue;
+      }
+      lost[v] = true;
+      lostList.add(v);
+      for (int e = offsets.get(v); e < offsets.get(v + 1); e++) { // v may have been their only way in
+        int u = adjacency.get(e);
+        if (distance[u] == d + 1 && lost[u] == false) {
+          candidates.add(((long) (d + 1) << 32) | u);
+        }
+      }
+    }
+
+    // NEW WAYS IN//
+    for (int v : lostList) {
+      distance[v] = Integer.MAX_VALUE;
+    }
+    for (int v : lostList) {
+      int best = Integer.MAX_VALUE;
+      for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+        best = Math.min(best, distance[adjacency.get(e)]);
+      }
+      if (best != Integer.MAX_VALUE) {
+        distance[v] = best + 1;
+        queue.add(((long) distance[v] << 32) | v);
+      }
+    }
+    int[] added = update.added();
+    for (int i = 0; i < added.length; i += 2) {
+      for (int side = 0; side < 2; side++) {
+        int from = added[i + side];
+        int to = added[i + 1 - side];
+        if (distance[from] != Integer.MAX_VALUE && distance[from] + 1 < distance[to]) {
+          distance[to] = distance[from] + 1;
+          queue.add(((long) distance[to] << 32) | to);
+        }
+      }
+    }
+
+    // SPREADING//
+    while (queue.isEmpty() == false) {
+      long key = queue.poll();
+      int v = (int) key;
+      int d = (int) (key >>> 32);
+      if (d != distance[v]) { // already got shorter
+        continue;
+      }
+      for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+        int u = adjacency.get(e);
+        if (d + 1 < distance[u]) {
+          distance[u] = d + 1;
+          queue.add(((long) (d + 1) << 32) | u);
+        }
+      }
+    }
+
+    int levels = 0;
+    for (int v = 0; v < distance.length; v++) {
+      if (distance[v] == Integer.MAX_VALUE) {
+        distance[v] = -1;
+      }
+      levels = Math.max(levels, distance[v]);
+    }
+    return new CenterTree(graph, this.center, distance, levels);
+  }
+
+  /**
+   * Name of the center this tree was built from.
+   *
+   * @return center name.
+   */
+  public String center() {
+    return this.center;
+  }
+
+  /**
+   * Distance of a vertex to the center, counting movies as a step.
+   *
+   * @param v
+   *            vertex id.
+   * @return distance, or -1 if v cannot reach the center.
+   */
+  public int distance(int v) {
+    return this.wideDistance != null ? this.wideDistance[v] : this.distance[v];
+  }
+
+  /**
+   * Next vertex on the way from a vertex to the center: the first neighbor
+   * that is one step closer.
+   *
+   * @param v
+   *            vertex id.
+   * @return parent, or -1 for the center and unreachable vertices.
+   */
+  public int parent(int v) {
+    int d = distance(v);
+    if (d <= 0) {
+      return -1;
+    }
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+      if (distance(adjacency.get(e)) == d - 1) {
+        return adjacency.get(e);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Actors farthest from the center, found in one pass over the tree.
+   *
+   * @return ids of every actor with the largest Bacon number, empty if
+   *         nobody is reachable.
+   */
+  public int[] farthest() {
+    int most = -1;
+    int count = 0;
+    for (int a = 0; a < this.graph.actorCount(); a++) {
+      int d = distance(a);
+      if (d > most) {
+        most = d;
+        count = 0;
+      }
+      if (d == most) {
+        count++;
+      }
+    }
+    int[] actors = new int[most == -1 ? 0 : count];
+    for (int a = 0, i = 0; i < actors.length; a++) {
+      if (distance(a) == most) {
+        actors[i++] = a;
+      }
+    }
+    return actors;
+  }
+
+  /**
+   * Approximate memory held by this tree.
+   *
+   * @return size in bytes.
+   */
+  public long bytes() {
+    return this.wideDistance != null ? 4L * this.wideDistance.length : this.distance.length;
+  }
+}
@@ -0,0 +1,221 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * CenterTreeCache.java Keeps the trees of recently used centers so switching
+ * back to one of them is instant. The cache holds as many trees as fit in a
+ * byte budget and evicts the least recently used one when a new tree does not
+ * fit. When several threads ask for the same missing tree at once, only one
+ * builds it and the others wait for it. A cache belongs to one graph, so
+ * every tree it hands out is a tree of that graph. When the graph is updated,
+ * a new cache for the new graph takes over the cached trees, repaired rather
+ * than thrown away, and lookups still holding the old cache go on with the old
+ * graph and its trees.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class CenterTreeCache {
+  /** Default budget, overridden by the bacon.cacheMB system property */
+  public static final long DEFAULT_BUDGET = Long.getLong("bacon.cacheMB", 256) << 20;
+
+  /** Actors and movies, the same for every tree of this cache */
+  private final Graph graph;
+  /** Most bytes the cached trees may use */
+  private long budget;
+  /** Bytes used by the cached trees */
+  private long used;
+  /** Trees by center name, least recently used first */
+  private LinkedHashMap<String, CenterTree> trees = new LinkedHashMap<String, CenterTree>(16, 0.75f, true);
+  /** Lookups answered from the cache */
+  private long hits;
+  /** Lookups that had to build a tree */
+  private long misses;
+  /** Trees thrown out to stay within the budget */
+  private long evictions;
+  /** Trees being built, by center name */
+  private HashMap<String, CompletableFuture<CenterTree>> building =
+      new HashMap<String, CompletableFuture<CenterTree>>();
+  /** Lookups that waited for a tree another thread was building */
+  private long shared;
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param budget
+   *            most bytes the cached trees may use.
+   */
+  public CenterTreeCache(Graph graph, long budget) {
+    this.graph = graph;
+    this.budget = budget;
+  }
+
+  /**
+   * Returns the tree of a center, building and caching it if needed.
+   *
+   * @param center
+   *            name of the center.
+   * @return tree of the center.
+   */
+  public CenterTree get(String center) {
+    CompletableFuture<CenterTree> future;
+    synchronized (this) {
+      CenterTree tree = this.trees.get(center);
+      if (tree != null) {
+        this.hits++;
+        return tree;
+      }
+      future = this.building.get(center);
+      if (future != null) { // another thread is building it, wait for that one
+        this.shared++;
+      } else {
+        this.misses++;
+        this.building.put(center, new CompletableFuture<CenterTree>());
+      }
+    }
+    if (future != null) {
+      return future.join();
+    }
+    CenterTree tree;
+    Metrics.Trace trace = Metrics.start("tree");
+    try (trace) {
+      tree = new CenterTree(this.graph, center); // built outside the lock so lookups can go on
+    } catch (RuntimeException | Error e) {
+      synchronized (this) {
+        this.building.remove(center).completeExceptionally(e);
+      }
+      throw e;
+    }
+    synchronized (this) {
+      this.trees.put(center, tree);
+      this.used += tree.bytes();
+      evict();
+      this.building.remove(center).complete(tree);
+    }
+    return tree;
+  }
+
+  /**
+   * Makes the cache of an updated graph, with every tree of this cache
+   * repaired, the same budget and the counters so far. This cache is left as
+   * it is, over the old graph.
+   *
+   * @param update
+   *            the update, applied to the graph of this cache.
+   * @return cache of the updated graph.
+   */
+  public synchronized CenterTreeCache update(GraphUpdate.Result update) {
+    CenterTreeCache updated = new CenterTreeCache(update.graph, this.budget);
+    for (Map.Entry<String, CenterTree> entry : this.trees.entrySet()) { // least recently used first, as before
+      CenterTree tree = entry.getValue().repair(update);
+      updated.trees.put(entry.getKey(), tree);
+      updated.used += tree.bytes();
+    }
+    updated.hits = this.hits;
+    updated.misses = this.misses;
+    updated.shared = this.shared;
+    updated.evictions = this.evictions;
+    updated.evict();
+    return updated;
+  }
+
+  /**
+   * The graph every tree of this cache belongs to.
+   *
+   * @return actors and movies.
+   */
+  public Graph graph() {
+    return this.graph;
+  }
+
+  /**
+   * Returns the tree of a center only if it is cached.
+   *
+   * @param center
+   *            name of the center.
+   * @return tree of the center, or null.
+   */
+  public synchronized CenterTree peek(String center) {
+    CenterTree tree = this.trees.get(center);
+    if (tree != null) {
+      this.hits++;
+    }
+    return tree;
+  }
+
+  /**
+   * Changes the budget, evicting trees if they no longer fit.
+   *
+   * @param budget
+   *            most bytes the cached trees may use.
+   */
+  public synchronized void setBudget(long budget) {
+    this.budget = budget;
+    evict();
+  }
+
+  /**
+   * Throws out least recently used trees until the rest fit, always keeping
+   * the newest one.
+   */
+  private void evict() {
+    Iterator<Map.Entry<String, CenterTree>> eldest = this.trees.entrySet().iterator();
+    while (this.used > this.budget && this.trees.size() > 1) {
+      this.used -= eldest.next().getValue().bytes();
+      eldest.remove();
+      this.evictions++;
+    }
+  }
+
+  /**
+   * Lookups answered from the cache.
+   *
+   * @return hit count.
+   */
+  public synchronized long hits() {
+    return this.hits;
+  }
+
+  /**
+   * Lookups that had to build a tree.
+   *
+   * @return miss count.
+   */
+  public synchronized long misses() {
+    return this.misses;
+  }
+
+  /**
+   * Lookups that waited for a tree another thread was building.
+   *
+   * @return shared build count.
+   */
+  public synchronized long shared() {
+    return this.shared;
+  }
+
+  /**
+   * Trees thrown out to stay within the budget.
+   *
+   * @return eviction count.
+   */
+  public synchronized long evictions() {
+    return this.evictions;
+  }
+
+  /**
+   * A one line summary of the cache.
+   *
+   * @return centers cached, bytes used and counters.
+   */
+  public synchronized String toString() {
+    return this.trees.size() + " centers cached, " + (this.used >> 10) + " of " + (this.budget >> 10) + " KB, "
+        + this.hits + " hits, " + this.misses + " misses, " + this.shared + " shared builds, " + this.evictions
+        + " evictions";
+  }
+}
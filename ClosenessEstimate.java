@@ -0,0 +1,406 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * ClosenessEstimate.java Estimates the average Bacon number of every actor at
+ * once from searches out of a random sample of pivot actors, the way Eppstein
+ * and Wang estimate closeness: Bacon numbers are symmetric, so the distances
+ * from k random pivots to an actor are a random sample of that actor's own
+ * distances, and their mean estimates its average. Each estimate comes with a
+ * 95% confidence interval from the spread of its sample.
+ *
+ * Pivots are drawn separately in every component, so each actor's sample
+ * comes from the actors it can reach. Components of at most CENSUS actors are
+ * searched out of every actor (each search is tiny) and are exact; bigger ones
+ * get pivots ROUND at a time, searched together by one MultiSourceBfs pass.
+ * top() keeps adding rounds until few actors could still be among the best
+ * n, then confirms those with exact searches. The averages it returns are
+ * exact, but the candidates are picked by their intervals, and an actor whose
+ * true average falls outside its own interval is never confirmed, so the list
+ * is the true top n only with high probability.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class ClosenessEstimate {
+  /** Components with at most this many actors are searched out of every actor */
+  public static final int CENSUS = 256;
+  /** Pivots added to every big component per round, one multi-source pass */
+  public static final int ROUND = MultiSourceBfs.LANES;
+  /** Pivots per component before any estimate is trusted */
+  public static final int MIN_PIVOTS = 4 * ROUND;
+  /** Default stop for sampling: at most CONFIRM * n candidates left to confirm */
+  public static final int CONFIRM = 8;
+  /** Default cap on pivots per component */
+  public static final int MAX_PIVOTS = 2048;
+  /** Confidence level of every interval, in percent */
+  public static final int CONFIDENCE = 95;
+  /** Normal quantile of a two-sided CONFIDENCE% interval */
+  private static final double Z = 1.96;
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Connected components of the graph */
+  private Components components;
+  /** Bacon numbers from the pivots, added up per actor */
+  private MultiSourceBfs.Totals totals;
+  /** Shuffled actors of every big component, the next pivots first */
+  private List<int[]> pools = new ArrayList<int[]>();
+  /** Pivots taken so far out of every big component */
+  private int pivots;
+  /** Search kernel for the pivots */
+  private MultiSourceBfs bfs;
+
+  /**
+   * Estimated average Bacon number of one actor.
+   */
+  public static class Estimate implements Comparable<Estimate> {
+    /** Id of the actor */
+    public final int actor;
+    /** Name of the actor */
+    public final String name;
+    /** Estimated average Bacon number */
+    public final double average;
+    /** Half the width of the 95% confidence interval, 0 if exact */
+    public final double error;
+    /** Number of actors the estimate is based on */
+    public final int sample;
+
+    /**
+     * Constructs an estimate.
+     *
+     * @param actor
+     *            id of the actor.
+     * @param name
+     *            name of the actor.
+     * @param average
+     *            estimated average.
+     * @param error
+     *            half width of the confidence interval.
+     * @param sample
+     *            actors sampled.
+     */
+    public Estimate(int actor, String name, double average, double error, int sample) {
+      this.actor = actor;
+      this.name = name;
+      this.average = average;
+      this.error = error;
+      this.sample = sample;
+    }
+
+    /**
+     * Whether the average is exact rather than estimated.
+     *
+     * @return true if exact.
+     */
+    public boolean exact() {
+      return this.error == 0;
+    }
+
+    /**
+     * Smaller average first, then by id.
+     */
+    public int compareTo(Estimate other) {
+      int cmp = Double.compare(this.average, other.average);
+      return cmp != 0 ? cmp : Integer.compare(this.actor, other.actor);
+    }
+
+    public String toString() {
+      if (exact()) {
+        return this.average + "\t" + this.name;
+      }
+      return String.format("%.4f +- %.4f\t%s (%d pivots)", this.average, this.error, this.name, this.sample);
+    }
+  }
+
+  /**
+   * Prepares an estimate, searching the small components out of every actor
+   * right away.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param seed
+   *            seed for picking pivots.
+   */
+  public ClosenessEstimate(Graph graph, long seed) {
+    this.graph = graph;
+    this.components = graph.components();
+    Components components = this.components;
+    this.totals = new MultiSourceBfs.Totals(graph.actorCount());
+    this.bfs = new MultiSourceBfs(graph, Runtime.getRuntime().availableProcessors() > 1);
+
+    // ACTORS BY COMPONENT//
+    int[] start = new int[components.count() + 1];
+    for (int a = 0; a < graph.actorCount(); a++) {
+      start[components.of(a) + 1]++;
+    }
+    for (int c = 0; c < components.count(); c++) {
+      start[c + 1] += start[c];
+    }
+    int[] actors = new int[graph.actorCount()];
+    int[] next = Arrays.copyOf(start, components.count());
+    for (int a = 0; a < graph.actorCount(); a++) {
+      actors[next[components.of(a)]++] = a;
+    }
+
+    // CENSUS OF THE SMALL COMPONENTS, POOLS OF THE BIG ONES//
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int c = 0; c < components.count(); c++) {
+      int size = start[c + 1] - start[c];
+      if (size <= CENSUS) {
+        for (int i = start[c]; i < start[c + 1]; i++) {
+          census(actors[i]);
+        }
+        continue;
+      }
+      int[] pool = Arrays.copyOfRange(actors, start[c], start[c + 1]);
+      for (int i = pool.length - 1; i > 0; i--) { // Fisher-Yates, so every prefix is a random sample
+        int j = random.nextInt(i + 1);
+        int swap = pool[i];
+        pool[i] = pool[j];
+        pool[j] = swap;
+      }
+      this.pools.add(pool);
+    }
+  }
+
+  /**
+   * Searches a small component out of one actor, making its totals exact.
+   *
+   * @param actor
+   *            actor id.
+   */
+  private void census(int actor) {
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    SearchState state = SearchState.acquire(this.graph.vertexCount());
+    int[] queue = state.queue();
+    int head = 0;
+    int tail = 0;
+    state.visit(actor, 0, -1);
+    queue[tail++] = actor;
+    while (head < tail) {
+      int next = queue[head++];
+      int distance = state.distance(next);
+      if (this.graph.isActor(next)) {
+        this.totals.sums[actor] += distance / 2;
+        this.totals.squares[actor] += (distance / 2) * (distance / 2);
+        this.totals.reached[actor]++;
+      }
+      for (int e = offsets.get(next); e < offsets.get(next + 1); e++) {
+        if (state.visit(adjacency.get(e), distance + 1, next)) {
+          queue[tail++] = adjacency.get(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds one round of pivots to every big component that has actors left.
+   *
+   * @return false if every actor already is a pivot.
+   */
+  public boolean round() {
+    int[] sources = new int[this.pools.size() * ROUND];
+    int count = 0;
+    for (int[] pool : this.pools) {
+      for (int i = this.pivots; i < Math.min(pool.length, this.pivots + ROUND); i++) {
+        sources[count++] = pool[i];
+      }
+    }
+    if (count == 0) {
+      return false;
+    }
+    this.bfs.add(Arrays.copyOf(sources, count), this.totals);
+    this.pivots += ROUND;
+    return true;
+  }
+
+  /**
+   * Adds rounds until every big component has a number of pivots, or all of
+   * its actors.
+   *
+   * @param pivots
+   *            pivots per component.
+   */
+  public void sample(int pivots) {
+    while (this.pivots < pivots && round()) {
+      continue;
+    }
+  }
+
+  /**
+   * Pivots taken out of every big component so far, fewer in components that
+   * have fewer actors.
+   *
+   * @return pivots per component.
+   */
+  public int pivots() {
+    return this.pivots;
+  }
+
+  /**
+   * Estimated average Bacon number of an actor, from the pivots so far.
+   *
+   * @param actor
+   *            actor id.
+   * @return the estimate; its error is infinite with fewer than two pivots.
+   */
+  public Estimate estimate(int actor) {
+    return new Estimate(actor, this.graph.name(actor), average(actor), error(actor), this.totals.reached[actor]);
+  }
+
+  /**
+   * Mean Bacon number of an actor over its sample.
+   *
+   * @param actor
+   *            actor id.
+   * @return the estimated average, 0 without a sample.
+   */
+  private double average(int actor) {
+    int k = this.totals.reached[actor];
+    return k == 0 ? 0 : (double) this.totals.sums[actor] / k;
+  }
+
+  /**
+   * Half the width of the 95% confidence interval of an actor's average.
+   *
+   * @param actor
+   *            actor id.
+   * @return error, 0 if exact and infinite with fewer than two pivots.
+   */
+  private double error(int actor) {
+    int k = this.totals.reached[actor];
+    int size = this.components.actorsWith(actor);
+    if (k >= size) { // every actor it can reach was searched
+      return 0;
+    } else if (k < 2) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double average = average(actor);
+    double variance = Math.max(0, (this.totals.squares[actor] - this.totals.sums[actor] * average) / (k - 1));
+    return Z * Math.sqrt(variance / k * (1 - (double) k / size)); // sampled without replacement
+  }
+
+  /**
+   * Finds the n best centers with the default CONFIRM and MAX_PIVOTS.
+   *
+   * @param n
+   *            number of centers.
+   * @param threads
+   *            number of threads for the exact searches.
+   * @return best centers with high probability, best first, with exact
+   *         averages.
+   */
+  public List<Estimate> top(int n, int threads) {
+    return top(n, threads, CONFIRM, MAX_PIVOTS);
+  }
+
+  /**
+   * Finds the n best centers with high probability: adds rounds of pivots
+   * until at most confirm times n actors without an exact average could
+   * still be among them by their CONFIDENCE% intervals (or maxPivots is
+   * reached), then searches exactly out of those. A true top n actor whose
+   * average lies above its interval is missed, so the list is confirmed with
+   * high probability rather than guaranteed.
+   *
+   * @param n
+   *            number of centers.
+   * @param threads
+   *            number of threads for the exact searches.
+   * @param confirm
+   *            stop sampling once at most confirm * n candidates are left.
+   * @param maxPivots
+   *            most pivots per component.
+   * @return best centers with high probability, best first, with exact
+   *         averages.
+   */
+  public List<Estimate> top(int n, int threads, int confirm, int maxPivots) {
+    long start = System.currentTimeMillis();
+    sample(MIN_PIVOTS);
+    int[] candidates = candidates(n);
+    while (unsure(candidates) > confirm * n && this.pivots < maxPivots && round()) {
+      candidates = candidates(n);
+      System.out.println("  " + this.pivots + " pivots per component, " + unsure(candidates)
+          + " candidates left to confirm, " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // CONFIRMING THE CANDIDATES//
+    List<Estimate> results = new ArrayList<Estimate>();
+    int[] unsure = new int[candidates.length];
+    int count = 0;
+    for (int actor : candidates) {
+      if (error(actor) == 0) {
+        results.add(estimate(actor));
+      } else {
+        unsure[count++] = actor;
+      }
+    }
+    if (count > 0) {
+      TopCenters exact = new TopCenters(this.graph);
+      for (TopCenters.Result result : exact.top(n, threads, Arrays.copyOf(unsure, count))) {
+        results.add(new Estimate(result.actor, result.name, result.average(), 0, (int) result.reach));
+      }
+    }
+    Collections.sort(results);
+    System.out.println("  confirmed with high probability: candidates picked by " + CONFIDENCE
+        + "% confidence intervals over " + this.pivots + " pivots per component");
+    return results.subList(0, Math.min(n, results.size()));
+  }
+
+  /**
+   * Number of actors whose average is not known exactly yet.
+   *
+   * @param actors
+   *            actor ids.
+   * @return actors with an estimated average.
+   */
+  private int unsure(int[] actors) {
+    int count = 0;
+    for (int actor : actors) {
+      if (error(actor) != 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Actors that are likely to be among the n best: those whose interval
+   * starts below the n-th smallest end of an interval.
+   *
+   * @param n
+   *            number of centers.
+   * @return candidate actor ids, best estimate first.
+   */
+  private int[] candidates(int n) {
+    PriorityQueue<Double> ends = new PriorityQueue<Double>(Collections.reverseOrder()); // n smallest ends
+    for (int a = 0; a < this.graph.actorCount(); a++) {
+      double end = average(a) + error(a);
+      if (ends.size() < n) {
+        ends.add(end);
+      } else if (end < ends.peek()) {
+        ends.poll();
+        ends.add(end);
+      }
+    }
+    double bar = ends.size() < n ? Double.POSITIVE_INFINITY : ends.peek();
+    List<Integer> candidates = new ArrayList<Integer>();
+    for (int a = 0; a < this.graph.actorCount(); a++) {
+      if (average(a) - error(a) <= bar) {
+        candidates.add(a);
+      }
+    }
+    candidates.sort((a, b) -> Double.compare(average(a), average(b)));
+    int[] order = new int[candidates.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = candidates.get(i);
+    }
+    return order;
+  }
+}
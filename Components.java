@@ -0,0 +1,379 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Components.java Labels every actor and movie with the connected component it
+ * belongs to, using one sweep of breadth first searches over the whole graph,
+ * and counts the actors in each component. Two vertices are connected exactly
+ * when their labels are equal, so searches never have to find that out by
+ * exploring a whole component. GraphBuilder labels every graph it builds and
+ * GraphSnapshot stores the labels, so they are mapped in with the rest.
+ *
+ * An updated graph keeps the labels of the graph before it. Added credits
+ * merge the components they join. A removed credit can only split the
+ * component it was in, and searches from the ends of the removed credits,
+ * run side by side, find the pieces: a search that runs out of vertices
+ * before meeting another one has gone around a whole piece, so only the
+ * smaller pieces are ever searched. Labels merged away stay behind as empty
+ * components.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class Components {
+  /** Component of every vertex */
+  private IntBuffer component;
+  /** Number of actors in every component */
+  private IntBuffer actors;
+  /** Component with the most actors */
+  private int largest;
+
+  /**
+   * Labels the components of a graph.
+   *
+   * @param graph
+   *            actors and movies.
+   */
+  public Components(Graph graph) {
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    int[] component = new int[graph.vertexCount()];
+    Arrays.fill(component, -1);
+    int[] sizes = new int[16];
+    int count = 0;
+    int[] queue = new int[graph.vertexCount()];
+    for (int start = 0; start < graph.vertexCount(); start++) {
+      if (component[start] != -1) {
+        continue;
+      }
+      if (count == sizes.length) {
+        sizes = Arrays.copyOf(sizes, count * 2);
+      }
+      int head = 0;
+      int tail = 0;
+      component[start] = count;
+      queue[tail++] = start;
+      while (head < tail) {
+        int next = queue[head++];
+        if (graph.isActor(next)) {
+          sizes[count]++;
+        }
+        for (int e = offsets.get(next); e < offsets.get(next + 1); e++) {
+          int neighbor = adjacency.get(e);
+          if (component[neighbor] == -1) {
+            component[neighbor] = count;
+            queue[tail++] = neighbor;
+          }
+        }
+      }
+      count++;
+    }
+    this.component = IntBuffer.wrap(component);
+    this.actors = IntBuffer.wrap(Arrays.copyOf(sizes, count));
+    this.largest = findLargest();
+  }
+
+  /**
+   * Constructs components out of labels that are already known, such as
+   * those mapped from a GraphSnapshot.
+   *
+   * @param component
+   *            component of every vertex.
+   * @param actors
+   *            number of actors in every component.
+   */
+  public Components(IntBuffer component, IntBuffer actors) {
+    this.component = component;
+    this.actors = actors;
+    this.largest = findLargest();
+  }
+
+  /**
+   * Labels the components of an updated graph out of those of the graph
+   * before it.
+   *
+   * @param before
+   *            components of the old graph.
+   * @param update
+   *            the update, whose graph is being labeled.
+   */
+  public Components(Components before, GraphUpdate.Result update) {
+    Graph graph = update.graph;
+    int[] fresh = update.fresh();
+    int[] component = new int[graph.vertexCount()];
+    int[] sizes = new int[before.count() + fresh.length + 16];
+    before.actors.get(0, sizes, 0, before.count());
+    int count = before.count();
+    if (fresh.length == 0) {
+      before.component.get(0, component, 0, component.length);
+    } else {
+      for (int v = 0; v < update.before.vertexCount(); v++) {
+        component[update.renamed(v)] = before.component.get(v);
+      }
+      for (int v : fresh) { // alone until a credit joins it to something
+        component[v] = count;
+        sizes[count++] = graph.isActor(v) ? 1 : 0;
+      }
+    }
+
+    // ADDED CREDITS MERGE COMPONENTS//
+    int[] into = new int[count]; // component every label was merged into
+    for (int c = 0; c < count; c++) {
+      into[c] = c;
+    }
+    int[] added = update.added();
+    boolean merged = false;
+    for (int i = 0; i < added.length; i += 2) {
+      int a = root(into, component[added[i]]);
+      int b = root(into, component[added[i + 1]]);
+      if (a != b) {
+        if (sizes[a] < sizes[b]) { // the smaller one goes into the bigger one
+          int swap = a;
+          a = b;
+          b = swap;
+        }
+        into[b] = a;
+        sizes[a] += sizes[b];
+        sizes[b] = 0;
+        merged = true;
+      }
+    }
+    if (merged) {
+      for (int c = 0; c < count; c++) {
+        into[c] = root(into, c);
+      }
+      for (int v = 0; v < component.length; v++) {
+        component[v] = into[component[v]];
+      }
+    }
+
+    // REMOVED CREDITS MAY SPLIT THEM//
+    Map<Integer, List<Integer>> ends = new LinkedHashMap<Integer, List<Integer>>(); // by component
+    int[] removed = update.removed();
+    for (int i = 0; i < removed.length; i++) {
+      List<Integer> list = ends.computeIfAbsent(component[removed[i]], c -> new ArrayList<Integer>());
+      if (list.contains(removed[i]) == false) {
+        list.add(removed[i]);
+      }
+    }
+    for (List<Integer> starts : ends.values()) {
+      for (int[] piece : split(graph, starts)) {
+        if (count == sizes.length) {
+          sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        for (int v : piece) {
+          if (graph.isActor(v)) {
+            sizes[component[v]]--;
+            sizes[count]++;
+          }
+          component[v] = count;
+        }
+        count++;
+      }
+    }
+    this.component = IntBuffer.wrap(component);
+    this.actors = IntBuffer.wrap(Arrays.copyOf(sizes, count));
+    this.largest = findLargest();
+  }
+
+  /**
+   * Label a label was merged into, following merges to the end.
+   *
+   * @param into
+   *            label every label was merged into, itself if none.
+   * @param c
+   *            label.
+   * @return final label.
+   */
+  private static int root(int[] into, int c) {
+    while (into[c] != c) {
+      into[c] = into[into[c]]; // halve the way for the next time
+      c = into[c];
+    }
+    return c;
+  }
+
+  /**
+   * Splits what used to be one component into the pieces it fell into, by
+   * searching from every start one vertex at a time in turn. Searches that
+   * meet are in the same piece and go on as one; a piece whose searches run
+   * out of vertices is complete. Once only one piece is still being searched,
+   * it is whatever is left of the component and keeps its label.
+   *
+   * @param graph
+   *            the updated graph.
+   * @param starts
+   *            ends of the removed credits in one component.
+   * @return vertices of every piece but the one that keeps the label.
+   */
+  private static List<int[]> split(Graph graph, List<Integer> starts) {
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    int k = starts.size();
+    HashMap<Integer, Integer> owner = new HashMap<Integer, Integer>(); // search that reached every vertex
+    int[][] queues = new int[k][];
+    int[] heads = new int[k];
+    int[] tails = new int[k];
+    int[] group = new int[k]; // searches that met, by the first of them
+    int[] searching = new int[k]; // searches of every group that still have vertices to visit
+    int live = k;
+    for (int i = 0; i < k; i++) {
+      queues[i] = new int[] { starts.get(i), 0, 0, 0 };
+      tails[i] = 1;
+      group[i] = i;
+      searching[i] = 1;
+      owner.put(starts.get(i), i);
+    }
+    List<int[]> pieces = new ArrayList<int[]>();
+    while (live > 1) {
+      for (int i = 0; i < k && live > 1; i++) {
+        if (heads[i] == tails[i]) {
+          continue;
+        }
+        int u = queues[i][heads[i]++];
+        for (int e = offsets.get(u); e < offsets.get(u + 1); e++) {
+          int w = adjacency.get(e);
+          Integer other = owner.get(w);
+          if (other == null) {
+            owner.put(w, i);
+            if (tails[i] == queues[i].length) {
+              queues[i] = Arrays.copyOf(queues[i], 2 * tails[i]);
+            }
+            queues[i][tails[i]++] = w;
+          } else {
+            int a = root(group, i);
+            int b = root(group, other);
+            if (a != b) { // one piece after all
+              group[b] = a;
+              searching[a] += searching[b];
+              live--;
+            }
+          }
+        }
+        int a = root(group, i);
+        if (heads[i] == tails[i] && --searching[a] == 0) { // went around a whole piece
+          int size = 0;
+          for (int j = 0; j < k; j++) {
+            size += root(group, j) == a ? tails[j] : 0;
+          }
+          int[] piece = new int[size];
+          size = 0;
+          for (int j = 0; j < k; j++) {
+            if (root(group, j) == a) {
+              System.arraycopy(queues[j], 0, piece, size, tails[j]);
+              size += tails[j];
+            }
+          }
+          pieces.add(piece);
+          live--;
+        }
+      }
+    }
+    return pieces;
+  }
+
+  /**
+   * Finds the component with the most actors.
+   *
+   * @return component number, 0 if there are none.
+   */
+  private int findLargest() {
+    int largest = 0;
+    for (int c = 1; c < this.actors.limit(); c++) {
+      if (this.actors.get(c) > this.actors.get(largest)) {
+        largest = c;
+      }
+    }
+    return largest;
+  }
+
+  /**
+   * Number of components.
+   *
+   * @return component count.
+   */
+  public int count() {
+    return this.actors.limit();
+  }
+
+  /**
+   * Component of a vertex.
+   *
+   * @param v
+   *            vertex id.
+   * @return component number.
+   */
+  public int of(int v) {
+    return this.component.get(v);
+  }
+
+  /**
+   * Whether two vertices are connected.
+   *
+   * @param v
+   *            vertex id.
+   * @param w
+   *            vertex id.
+   * @return true if a path joins them.
+   */
+  public boolean connected(int v, int w) {
+    return this.component.get(v) == this.component.get(w);
+  }
+
+  /**
+   * Number of actors in a component.
+   *
+   * @param component
+   *            component number.
+   * @return actors in it.
+   */
+  public int actors(int component) {
+    return this.actors.get(component);
+  }
+
+  /**
+   * The component with the most actors, the one almost everybody is in.
+   *
+   * @return component number.
+   */
+  public int largest() {
+    return this.largest;
+  }
+
+  /**
+   * Number of actors in the same component as a vertex, itself included if it
+   * is an actor.
+   *
+   * @param v
+   *            vertex id.
+   * @return actors reachable from v.
+   */
+  public int actorsWith(int v) {
+    return this.actors.get(this.component.get(v));
+  }
+
+  /**
+   * Component of every vertex. Possibly mapped from a file, so it must not
+   * be changed.
+   *
+   * @return labels, one per vertex.
+   */
+  public IntBuffer labels() {
+    return this.component;
+  }
+
+  /**
+   * Number of actors in every component. Possibly mapped from a file, so it
+   * must not be changed.
+   *
+   * @return sizes, one per component.
+   */
+  public IntBuffer sizes() {
+    return this.actors;
+  }
+}
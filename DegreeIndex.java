@@ -0,0 +1,271 @@
+import java.util.Arrays;
+
+/**
+ * DegreeIndex.java Ranks the actors by number of film credits and the movies
+ * by cast size, once, so the most credited actors, the largest casts and
+ * everybody with at least k credits are read off the front of a sorted list
+ * instead of scanning every vertex for each question.
+ *
+ * Degrees are small, so both lists are made by one counting sort: the
+ * histogram of degrees, summed from the largest degree down, says where the
+ * vertices of every degree start, and a second pass drops every vertex into
+ * its place. Vertices with the same degree stay in id order, so actors with
+ * as many credits come out alphabetically. The ranking belongs to a graph,
+ * which never changes, so recentering keeps it. update() gets a new one along
+ * with the new graph, made out of the old one: the vertices whose credits
+ * changed are taken out and merged back in at their new degree, and every
+ * other vertex keeps its place.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class DegreeIndex {
+  /** Actors, most credits first */
+  private Ranking actors;
+  /** Movies, largest cast first */
+  private Ranking movies;
+
+  /**
+   * Vertices of one kind sorted by degree.
+   */
+  private static class Ranking {
+    /** Vertex ids, largest degree first, then by id */
+    private int[] order;
+    /** Number of vertices with at least every degree, with one extra entry at the end */
+    private int[] atLeast;
+
+    /**
+     * Sorts a range of vertices by degree.
+     *
+     * @param graph
+     *            actors and movies.
+     * @param from
+     *            first vertex id.
+     * @param to
+     *            one past the last vertex id.
+     */
+    Ranking(Graph graph, int from, int to) {
+      int max = 0;
+      for (int v = from; v < to; v++) {
+        max = Math.max(max, graph.degree(v));
+      }
+      int[] atLeast = new int[max + 2];
+      for (int v = from; v < to; v++) {
+        atLeast[graph.degree(v)]++;
+      }
+      for (int d = max - 1; d >= 0; d--) {
+        atLeast[d] += atLeast[d + 1];
+      }
+      int[] next = Arrays.copyOfRange(atLeast, 1, max + 2); // vertices of degree d start after those above it
+      int[] order = new int[to - from];
+      for (int v = from; v < to; v++) {
+        order[next[graph.degree(v)]++] = v;
+      }
+      this.order = order;
+      this.atLeast = atLeast;
+    }
+
+    /**
+     * Ranking of a range of vertices of an updated graph, out of the ranking
+     * before the update.
+     *
+     * @param before
+     *            ranking of the old graph.
+     * @param update
+     *            the update.
+     * @param from
+     *            first new vertex id.
+     * @param to
+     *            one past the last new vertex id.
+     */
+    Ranking(Ranking before, GraphUpdate.Result update, int from, int to) {
+      Graph graph = update.graph;
+      Graph old = update.before;
+
+      // VERTICES THAT MOVE//
+      int[] count = new int[before.atLeast.length - 1]; // vertices of every degree
+      for (int d = 0; d < count.length; d++) {
+        count[d] = before.atLeast[d] - before.atLeast[d + 1];
+      }
+      long[] moved = new long[update.changed().length]; // new degree, largest first, then new id
+      long[] gone = new long[update.changed().length]; // old place in the ranking
+      int movedCount = 0;
+      int goneCount = 0;
+      for (int v : update.changed()) {
+        if (v < from || v >= to) {
+          continue;
+        }
+        int degree = graph.degree(v);
+        int original = update.original(v);
+        if (original != -1) {
+          int was = old.degree(original);
+          if (was == degree) { // neighbors changed but not how many
+            continue;
+          }
+          gone[goneCount++] = Arrays.binarySearch(before.order, before.atLeast[was + 1], before.atLeast[was],
+              original);
+          count[was]--;
+        }
+        if (degree >= count.length) {
+          count = Arrays.copyOf(count, degree + 1);
+        }
+        count[degree]++;
+        moved[movedCount++] = ((long) (Integer.MAX_VALUE - degree) << 32) | v;
+      }
+      Arrays.sort(moved, 0, movedCount);
+      Arrays.sort(gone, 0, goneCount);
+      int max = count.length - 1;
+      while (max > 0 && count[max] == 0) {
+        max--;
+      }
+      int[] atLeast = new int[max + 2];
+      for (int d = max; d >= 0; d--) {
+        atLeast[d] = atLeast[d + 1] + count[d];
+      }
+
+      // MERGING THEM BACK IN, DEGREE BY DEGREE//
+      int[] order = new int[to - from];
+      int out = 0;
+      int in = 0;
+      int g = 0;
+      int m = 0;
+      for (int d = max; d >= 0; d--) {
+        int end = d < before.atLeast.length - 1 ? before.atLeast[d] : in; // old vertices of degree d end here
+        while (true) {
+          if (g < goneCount && gone[g] == in && in < end) { // moved somewhere else
+            g++;
+            in++;
+            continue;
+          }
+          int next = in < end ? update.renamed(before.order[in]) : Integer.MAX_VALUE;
+          if (m < movedCount && Integer.MAX_VALUE - (int) (moved[m] >>> 32) == d && (int) moved[m] < next) {
+            order[out++] = (int) moved[m++];
+          } else if (in < end) {
+            order[out++] = next;
+            in++;
+          } else {
+            break;
+          }
+        }
+      }
+      this.order = order;
+      this.atLeast = atLeast;
+    }
+
+    /**
+     * Number of vertices with at least a degree.
+     *
+     * @param k
+     *            smallest degree.
+     * @return vertex count.
+     */
+    int count(int k) {
+      return k >= this.atLeast.length ? 0 : this.atLeast[Math.max(0, k)];
+    }
+  }
+
+  /**
+   * Ranks the actors and movies of a graph.
+   *
+   * @param graph
+   *            actors and movies.
+   */
+  public DegreeIndex(Graph graph) {
+    this.actors = new Ranking(graph, 0, graph.actorCount());
+    this.movies = new Ranking(graph, graph.actorCount(), graph.vertexCount());
+  }
+
+  /**
+   * Ranks the actors and movies of an updated graph, moving only the ones
+   * whose credits changed.
+   *
+   * @param before
+   *            ranking of the graph before the update.
+   * @param update
+   *            the update.
+   */
+  public DegreeIndex(DegreeIndex before, GraphUpdate.Result update) {
+    Graph graph = update.graph;
+    this.actors = new Ranking(before.actors, update, 0, graph.actorCount());
+    this.movies = new Ranking(before.movies, update, graph.actorCount(), graph.vertexCount());
+  }
+
+  /**
+   * Actors or movies with the largest degree.
+   *
+   * @param n
+   *            most ids returned.
+   * @param movies
+   *            true for the largest casts, false for the most credited
+   *            actors.
+   * @return vertex ids, largest degree first.
+   */
+  public int[] top(int n, boolean movies) {
+    Ranking ranking = movies ? this.movies : this.actors;
+    return Arrays.copyOf(ranking.order, Math.max(0, Math.min(n, ranking.order.length)));
+  }
+
+  /**
+   * Actors or movies with at least a degree.
+   *
+   * @param k
+   *            fewest credits, or smallest cast.
+   * @param movies
+   *            true for movies, false for actors.
+   * @return vertex ids, largest degree first.
+   */
+  public int[] atLeast(int k, boolean movies) {
+    return top(count(k, movies), movies);
+  }
+
+  /**
+   * Number of actors or movies with at least a degree, without listing them.
+   *
+   * @param k
+   *            fewest credits, or smallest cast.
+   * @param movies
+   *            true for movies, false for actors.
+   * @return vertex count.
+   */
+  public int count(int k, boolean movies) {
+    return (movies ? this.movies : this.actors).count(k);
+  }
+
+  /**
+   * Largest degree of an actor or movie.
+   *
+   * @param movies
+   *            true for the largest cast, false for the most credits.
+   * @return largest degree, 0 if there are none.
+   */
+  public int max(boolean movies) {
+    return (movies ? this.movies : this.actors).atLeast.length - 2;
+  }
+
+  /**
+   * Histogram of the degrees.
+   *
+   * @param movies
+   *            true for cast sizes, false for credits.
+   * @return number of actors or movies with exactly every degree, up to
+   *         max().
+   */
+  public int[] histogram(boolean movies) {
+    int[] atLeast = (movies ? this.movies : this.actors).atLeast;
+    int[] histogram = new int[atLeast.length - 1];
+    for (int d = 0; d < histogram.length; d++) {
+      histogram[d] = atLeast[d] - atLeast[d + 1];
+    }
+    return histogram;
+  }
+
+  /**
+   * Memory held by the index.
+   *
+   * @return size in bytes.
+   */
+  public long memory() {
+    return 4L * (this.actors.order.length + this.actors.atLeast.length + this.movies.order.length
+        + this.movies.atLeast.length);
+  }
+}
@@ -0,0 +1,349 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Eccentricity.java Finds the diameter of the graph (the largest Bacon number
+ * between any two actors who are connected at all) and its periphery (every
+ * actor that far from somebody) with a handful of searches instead of one per
+ * actor, using the iFUB algorithm of Crescenzi, Grossi, Habib, Lanzi and
+ * Marino.
+ *
+ * In every component a double sweep (search out of the actor with the most
+ * credits, then out of the actor farthest from it) gives a lower bound and a
+ * long path, and the actor in the middle of that path becomes the root u. Two
+ * actors that are both at most i from u are at most 2i apart, so the actors
+ * of u's tree are searched from the farthest level inwards, and as soon as
+ * the best eccentricity found beats twice the level left to search, no other
+ * pair can be farther apart. Every pair that far apart has an end in a level
+ * that was searched, so the periphery is exact as well. Components too small
+ * to hold a longer path than the best one are skipped.
+ *
+ * Components with more than SMALL actors are searched by the bitset kernel,
+ * smaller ones vertex by vertex so a search costs only the component.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class Eccentricity {
+  /** Components with more actors than this are searched by BitsetBfs */
+  private static final int SMALL = 1 << 14;
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Connected components of the graph */
+  private Components components;
+  /** Search kernel for big components, made when first needed */
+  private BitsetBfs bfs;
+  /** Distance of every vertex from the last BitsetBfs source */
+  private int[] distance;
+  /** Search of the last small component, null if the last search was big */
+  private SearchState state;
+  /** Actors reached by the last search, closest first */
+  private int[] order;
+  /** Where each Bacon number starts in order, with one extra entry at the end */
+  private int[] start = new int[16];
+  /** Largest Bacon number of the last search */
+  private int eccentricity;
+  /** Number of searches so far */
+  private int searches;
+  /** Largest eccentricity found so far */
+  private int best = -1;
+  /** An actor at one end of a longest path found so far */
+  private int from = -1;
+  /** An actor at the other end */
+  private int to = -1;
+  /** Actors found to be best away from somebody */
+  private BitSet periphery = new BitSet();
+
+  /**
+   * Diameter and periphery of a graph.
+   */
+  public static class Result {
+    /** Largest Bacon number between two connected actors */
+    public final int diameter;
+    /** An actor at one end of a longest path */
+    public final int from;
+    /** An actor at the other end */
+    public final int to;
+    /** Every actor whose eccentricity is the diameter, sorted; null if not asked for */
+    public final int[] periphery;
+    /** Number of searches it took */
+    public final int searches;
+
+    /**
+     * Constructs a result.
+     *
+     * @param diameter
+     *            largest Bacon number.
+     * @param from
+     *            one end of a longest path.
+     * @param to
+     *            other end of a longest path.
+     * @param periphery
+     *            peripheral actors, or null.
+     * @param searches
+     *            number of searches.
+     */
+    public Result(int diameter, int from, int to, int[] periphery, int searches) {
+      this.diameter = diameter;
+      this.from = from;
+      this.to = to;
+      this.periphery = periphery;
+      this.searches = searches;
+    }
+  }
+
+  /**
+   * Prepares to measure a graph.
+   *
+   * @param graph
+   *            actors and movies.
+   */
+  public Eccentricity(Graph graph) {
+    this.graph = graph;
+    this.components = graph.components();
+    this.order = new int[graph.actorCount()];
+  }
+
+  /**
+   * Finds the diameter and a pair of actors that far apart.
+   *
+   * @return the diameter, without the periphery.
+   */
+  public Result diameter() {
+    return run(false);
+  }
+
+  /**
+   * Finds the diameter and every actor whose eccentricity is the diameter.
+   * This may search one more level of each root's tree than diameter().
+   *
+   * @return the diameter and periphery.
+   */
+  public Result periphery() {
+    return run(true);
+  }
+
+  /**
+   * Runs iFUB in every component that could hold a longer path.
+   *
+   * @param periphery
+   *            whether to find every peripheral actor, not just one pair.
+   * @return the result.
+   */
+  private Result run(boolean periphery) {
+    this.searches = 0;
+    this.best = -1;
+    this.from = -1;
+    this.to = -1;
+    this.periphery.clear();
+
+    // THE ACTOR WITH THE MOST CREDITS IN EVERY COMPONENT//
+    int[] hub = new int[this.components.count()];
+    Arrays.fill(hub, -1);
+    for (int a = 0; a < this.graph.actorCount(); a++) {
+      int c = this.components.of(a);
+      if (hub[c] == -1 || this.graph.degree(a) > this.graph.degree(hub[c])) {
+        hub[c] = a;
+      }
+    }
+    List<Integer> order = new ArrayList<Integer>();
+    for (int c = 0; c < hub.length; c++) {
+      if (hub[c] != -1) {
+        order.add(c);
+      }
+    }
+    order.sort((c, d) -> Integer.compare(this.components.actors(d), this.components.actors(c)));
+
+    // iFUB, BIGGEST COMPONENT FIRST//
+    for (int c : order) {
+      int longest = this.components.actors(c) - 1; // no path can have more actors than the component
+      if (longest < this.best || (periphery == false && longest == this.best)) {
+        break;
+      }
+      component(hub[c], periphery);
+    }
+    int[] actors = null;
+    if (periphery) {
+      actors = this.periphery.stream().toArray();
+    }
+    return new Result(this.best, this.from, this.to, actors, this.searches);
+  }
+
+  /**
+   * Runs iFUB in one component.
+   *
+   * @param hub
+   *            actor with the most credits in the component.
+   * @param periphery
+   *            whether every pair best apart must be found.
+   */
+  private void component(int hub, boolean periphery) {
+    // DOUBLE SWEEP//
+    record(hub, search(hub));
+    int a = farthest();
+    int eccentricity = search(a);
+    record(a, eccentricity);
+    int u = farthest();
+    for (int hops = 2 * eccentricity; hops > 2 * (eccentricity / 2); hops--) { // walk back to the middle
+      u = closer(u, hops);
+    }
+
+    // FRINGES OF THE ROOT, FARTHEST FIRST//
+    int levels = search(u);
+    record(u, levels);
+    int[] fringe = Arrays.copyOf(this.order, this.start[levels + 1]);
+    int[] start = Arrays.copyOf(this.start, levels + 2);
+    for (int i = levels; i > 0; i--) {
+      if (this.best > 2 * i || (periphery == false && this.best == 2 * i)) { // pairs left are at most 2i apart
+        return;
+      }
+      for (int k = start[i]; k < start[i + 1]; k++) {
+        record(fringe[k], search(fringe[k]));
+      }
+    }
+  }
+
+  /**
+   * Counts the result of a search towards the best.
+   *
+   * @param source
+   *            actor the last search started at.
+   * @param eccentricity
+   *            its eccentricity.
+   */
+  private void record(int source, int eccentricity) {
+    if (eccentricity < this.best) {
+      return;
+    }
+    if (eccentricity > this.best) {
+      this.best = eccentricity;
+      this.from = source;
+      this.to = farthest();
+      this.periphery.clear();
+    }
+    this.periphery.set(source);
+    for (int k = this.start[eccentricity]; k < this.start[eccentricity + 1]; k++) {
+      this.periphery.set(this.order[k]);
+    }
+  }
+
+  /**
+   * An actor farthest from the source of the last search.
+   *
+   * @return actor id.
+   */
+  private int farthest() {
+    return this.order[this.start[this.eccentricity + 1] - 1];
+  }
+
+  /**
+   * A neighbor one step closer to the source of the last search.
+   *
+   * @param v
+   *            vertex id.
+   * @param hops
+   *            its distance.
+   * @return neighbor at distance hops - 1.
+   */
+  private int closer(int v, int hops) {
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+      int w = adjacency.get(e);
+      if ((this.state != null ? this.state.distance(w) : this.distance[w]) == hops - 1) {
+        return w;
+      }
+    }
+    throw new IllegalStateException(this.graph.name(v) + " has no neighbor closer to the source");
+  }
+
+  /**
+   * Searches out of an actor, leaving the actors it reaches in order by
+   * Bacon number.
+   *
+   * @param source
+   *            actor id.
+   * @return eccentricity of the actor: the largest Bacon number it reaches.
+   */
+  private int search(int source) {
+    this.searches++;
+    int reached = 0;
+    int eccentricity = 0;
+    if (this.components.actorsWith(source) > SMALL) {
+      if (this.bfs == null) {
+        this.bfs = new BitsetBfs(this.graph, Runtime.getRuntime().availableProcessors() > 1);
+        this.distance = new int[this.graph.vertexCount()];
+      }
+      this.state = null;
+      eccentricity = this.bfs.run(source, this.distance, null, null) / 2;
+      this.eccentricity = eccentricity;
+      ensure(eccentricity);
+      Arrays.fill(this.start, 0, eccentricity + 3, 0);
+      for (int a = 0; a < this.graph.actorCount(); a++) { // counting sort by Bacon number
+        if (this.distance[a] >= 0) {
+          this.start[this.distance[a] / 2 + 2]++;
+        }
+      }
+      for (int b = 2; b < eccentricity + 3; b++) {
+        this.start[b] += this.start[b - 1];
+      }
+      for (int a = 0; a < this.graph.actorCount(); a++) {
+        if (this.distance[a] >= 0) {
+          this.order[this.start[this.distance[a] / 2 + 1]++] = a;
+        }
+      }
+      return eccentricity;
+    }
+
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    SearchState state = SearchState.acquire(this.graph.vertexCount());
+    this.state = state;
+    int[] queue = state.queue();
+    int head = 0;
+    int tail = 0;
+    long scanned = 0;
+    state.visit(source, 0, -1);
+    queue[tail++] = source;
+    this.start[0] = 0;
+    while (head < tail) {
+      int next = queue[head++];
+      int distance = state.distance(next);
+      if (this.graph.isActor(next)) {
+        if (distance / 2 > eccentricity) {
+          eccentricity = distance / 2;
+          ensure(eccentricity);
+          this.start[eccentricity] = reached;
+        }
+        this.order[reached++] = next;
+      }
+      scanned += offsets.get(next + 1) - offsets.get(next);
+      for (int e = offsets.get(next); e < offsets.get(next + 1); e++) {
+        if (state.visit(adjacency.get(e), distance + 1, next)) {
+          queue[tail++] = adjacency.get(e);
+        }
+      }
+    }
+    this.start[eccentricity + 1] = reached;
+    this.start[eccentricity + 2] = reached;
+    this.eccentricity = eccentricity;
+    Metrics.searched(tail, scanned);
+    return eccentricity;
+  }
+
+  /**
+   * Grows start to hold an eccentricity.
+   *
+   * @param eccentricity
+   *            largest Bacon number of the search.
+   */
+  private void ensure(int eccentricity) {
+    if (this.start.length < eccentricity + 3) {
+      this.start = Arrays.copyOf(this.start, Math.max(eccentricity + 3, 2 * this.start.length));
+    }
+  }
+}
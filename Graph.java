@@ -0,0 +1,276 @@
+import java.nio.IntBuffer;
+
+/**
+ * Graph.java Compressed sparse row graph of actors and movies. Every actor and
+ * movie gets a dense int id (actors first, then movies) and the neighbors of
+ * vertex v are adjacency[offsets[v]] up to adjacency[offsets[v + 1]].
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class Graph {
+  /** Number of actors, whose ids are 0 up to actorCount */
+  private int actorCount;
+  /** Number of movies, whose ids are actorCount up to actorCount + movieCount */
+  private int movieCount;
+  /** Where the neighbors of each vertex start in adjacency, with one extra entry at the end */
+  private IntBuffer offsets;
+  /** The neighbors of every vertex, one after the other */
+  private IntBuffer adjacency;
+  /** Actor name or movie title of every vertex */
+  private NameTable names;
+  /** Connected components, labeled when first needed if not given */
+  private volatile Components components;
+  /** Prefix and typo index of the actor names, built when first needed */
+  private volatile NameIndex index;
+  /** Actors and movies ranked by degree, built when first needed */
+  private volatile DegreeIndex degrees;
+
+  /**
+   * Constructs a graph out of buffers that have already been filled in by a
+   * GraphBuilder or mapped from a GraphSnapshot.
+   *
+   * @param actorCount
+   *            number of actors.
+   * @param movieCount
+   *            number of movies.
+   * @param offsets
+   *            start of every vertex's neighbors in adjacency.
+   * @param adjacency
+   *            neighbors of every vertex.
+   * @param names
+   *            name of every vertex.
+   */
+  public Graph(int actorCount, int movieCount, IntBuffer offsets, IntBuffer adjacency, NameTable names) {
+    this.actorCount = actorCount;
+    this.movieCount = movieCount;
+    this.offsets = offsets;
+    this.adjacency = adjacency;
+    this.names = names;
+  }
+
+  /**
+   * Constructs a graph whose components are already labeled.
+   *
+   * @param actorCount
+   *            number of actors.
+   * @param movieCount
+   *            number of movies.
+   * @param offsets
+   *            start of every vertex's neighbors in adjacency.
+   * @param adjacency
+   *            neighbors of every vertex.
+   * @param names
+   *            name of every vertex.
+   * @param components
+   *            connected components of the graph.
+   */
+  public Graph(int actorCount, int movieCount, IntBuffer offsets, IntBuffer adjacency, NameTable names,
+      Components components) {
+    this(actorCount, movieCount, offsets, adjacency, names);
+    this.components = components;
+  }
+
+  /**
+   * Returns the number of actors in the graph.
+   *
+   * @return number of actors.
+   */
+  public int actorCount() {
+    return this.actorCount;
+  }
+
+  /**
+   * Returns the number of movies in the graph.
+   *
+   * @return number of movies.
+   */
+  public int movieCount() {
+    return this.movieCount;
+  }
+
+  /**
+   * Returns the number of actors and movies in the graph.
+   *
+   * @return number of vertices.
+   */
+  public int vertexCount() {
+    return this.actorCount + this.movieCount;
+  }
+
+  /**
+   * Whether the vertex is an actor (and not a movie).
+   *
+   * @param v
+   *            vertex id.
+   * @return true for actors.
+   */
+  public boolean isActor(int v) {
+    return v < this.actorCount;
+  }
+
+  /**
+   * Looks up the id of an actor.
+   *
+   * @param name
+   *            actor name.
+   * @return id of the actor, or -1 if there is no such actor.
+   */
+  public int actor(String name) {
+    return this.names.actor(name);
+  }
+
+  /**
+   * Looks up the id of a movie.
+   *
+   * @param title
+   *            movie title.
+   * @return id of the movie, or -1 if there is no such movie.
+   */
+  public int movie(String title) {
+    return this.names.movie(title);
+  }
+
+  /**
+   * The actor name or movie title of a vertex.
+   *
+   * @param v
+   *            vertex id.
+   * @return name of the vertex.
+   */
+  public String name(int v) {
+    return this.names.name(v);
+  }
+
+  /**
+   * The table holding every actor name and movie title.
+   *
+   * @return name table.
+   */
+  public NameTable names() {
+    return this.names;
+  }
+
+  /**
+   * Connected components of the graph, labeled by one sweep the first time
+   * they are needed unless the graph was built or mapped with them.
+   *
+   * @return components.
+   */
+  public Components components() {
+    Components components = this.components;
+    if (components == null) {
+      synchronized (this) {
+        if (this.components == null) {
+          this.components = new Components(this);
+        }
+        components = this.components;
+      }
+    }
+    return components;
+  }
+
+  /**
+   * Index for suggesting actor names, built the first time it is needed;
+   * the game and the server ask for it as soon as they load a graph.
+   *
+   * @return name index.
+   */
+  public NameIndex index() {
+    NameIndex index = this.index;
+    if (index == null) {
+      synchronized (this) {
+        if (this.index == null) {
+          this.index = new NameIndex(this);
+        }
+        index = this.index;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Actors ranked by credits and movies by cast size, built the first time
+   * they are needed.
+   *
+   * @return degree index.
+   */
+  public DegreeIndex degrees() {
+    DegreeIndex degrees = this.degrees;
+    if (degrees == null) {
+      synchronized (this) {
+        if (this.degrees == null) {
+          this.degrees = new DegreeIndex(this);
+        }
+        degrees = this.degrees;
+      }
+    }
+    return degrees;
+  }
+
+  /**
+   * Takes over the components and indexes of the graph an update was applied
+   * to, adjusted around the credits that changed instead of built again.
+   * Whatever the old graph had not built yet is built when first needed.
+   *
+   * @param update
+   *            the update that made this graph.
+   */
+  void carry(GraphUpdate.Result update) {
+    Graph before = update.before;
+    if (before.components != null) {
+      this.components = new Components(before.components, update);
+    }
+    if (before.index != null) {
+      this.index = new NameIndex(before.index, update);
+    }
+    if (before.degrees != null) {
+      this.degrees = new DegreeIndex(before.degrees, update);
+    }
+  }
+
+  /**
+   * Whether two vertices are connected, without searching.
+   *
+   * @param v
+   *            vertex id.
+   * @param w
+   *            vertex id.
+   * @return true if a path joins them.
+   */
+  public boolean connected(int v, int w) {
+    return components().connected(v, w);
+  }
+
+  /**
+   * Number of neighbors of a vertex (film credits for an actor, cast size for
+   * a movie).
+   *
+   * @param v
+   *            vertex id.
+   * @return number of neighbors.
+   */
+  public int degree(int v) {
+    return this.offsets.get(v + 1) - this.offsets.get(v);
+  }
+
+  /**
+   * Start of each vertex's neighbors in adjacency(). Shared with the caller
+   * (and possibly a read-only mapped file), so it must not be changed.
+   *
+   * @return offsets buffer with vertexCount() + 1 entries.
+   */
+  public IntBuffer offsets() {
+    return this.offsets;
+  }
+
+  /**
+   * Neighbors of every vertex, one after the other. Shared with the caller
+   * (and possibly a read-only mapped file), so it must not be changed.
+   *
+   * @return adjacency buffer.
+   */
+  public IntBuffer adjacency() {
+    return this.adjacency;
+  }
+}
@@ -0,0 +1,202 @@
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * GraphBuilder.java Collects actor|movie credits one at a time and packs them
+ * into a Graph once everything has been read.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class GraphBuilder {
+  /** Actor names and their ids */
+  private ByteDictionary actors = new ByteDictionary();
+  /** Movie titles and their ids (counted from 0 until build) */
+  private ByteDictionary movies = new ByteDictionary();
+  /** Actor id of every credit */
+  private int[] creditActors = new int[1024];
+  /** Movie id of every credit */
+  private int[] creditMovies = new int[1024];
+  /** Number of credits read so far */
+  private int credits;
+
+  /**
+   * Adds one line of the database: an actor played in a movie.
+   *
+   * @param actor
+   *            actor name.
+   * @param movie
+   *            movie title.
+   */
+  public void addCredit(String actor, String movie) {
+    byte[] a = actor.getBytes(StandardCharsets.UTF_8);
+    byte[] m = movie.getBytes(StandardCharsets.UTF_8);
+    addCredit(this.actors.add(a, 0, a.length), this.movies.add(m, 0, m.length));
+  }
+
+  /**
+   * Adds a credit between an actor and a movie that are already in actors()
+   * and movies().
+   *
+   * @param actor
+   *            actor id in actors().
+   * @param movie
+   *            movie id in movies().
+   */
+  public void addCredit(int actor, int movie) {
+    if (this.credits == this.creditActors.length) {
+      this.creditActors = Arrays.copyOf(this.creditActors, this.credits * 2);
+      this.creditMovies = Arrays.copyOf(this.creditMovies, this.credits * 2);
+    }
+    this.creditActors[this.credits] = actor;
+    this.creditMovies[this.credits] = movie;
+    this.credits++;
+  }
+
+  /**
+   * The actor names read so far.
+   *
+   * @return actor dictionary.
+   */
+  public ByteDictionary actors() {
+    return this.actors;
+  }
+
+  /**
+   * The movie titles read so far.
+   *
+   * @return movie dictionary.
+   */
+  public ByteDictionary movies() {
+    return this.movies;
+  }
+
+  /**
+   * Packs the credits into offset and adjacency arrays. Actors and movies are
+   * renumbered so that their names are in sorted order, with movie ids coming
+   * right after the actors.
+   *
+   * @return the finished graph.
+   */
+  public Graph build() {
+    int actorCount = this.actors.size();
+    int movieCount = this.movies.size();
+    int vertexCount = actorCount + movieCount;
+
+    int[] starts = new int[vertexCount + 1];
+    byte[] bytes = new byte[this.actors.end(actorCount - 1) + this.movies.end(movieCount - 1)];
+    int[] actorRename = sortNames(this.actors, starts, bytes, 0);
+    int[] movieRename = sortNames(this.movies, starts, bytes, actorCount);
+    this.actors = null; // the names now live in the name table
+    this.movies = null;
+
+    int[] offsets = new int[vertexCount + 1];
+    for (int c = 0; c < this.credits; c++) { // count the neighbors of every vertex
+      offsets[actorRename[this.creditActors[c]] + 1]++;
+      offsets[movieRename[this.creditMovies[c]] + 1]++;
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+
+    int[] adjacency = new int[this.credits * 2];
+    int[] next = Arrays.copyOf(offsets, vertexCount); // next free slot of every vertex
+    for (int c = 0; c < this.credits; c++) {
+      int a = actorRename[this.creditActors[c]];
+      int m = movieRename[this.creditMovies[c]];
+      adjacency[next[a]++] = m;
+      adjacency[next[m]++] = a;
+    }
+    this.creditActors = null; // the credits now live in the graph
+    this.creditMovies = null;
+
+    NameTable table = NameTable.encode(actorCount, starts, bytes);
+    Graph graph = new Graph(actorCount, movieCount, IntBuffer.wrap(offsets), IntBuffer.wrap(adjacency), table);
+    graph.components(); // labeled now, so no lookup ever searches a whole component to find nobody
+    return graph;
+  }
+
+  /**
+   * Sorts the names in a dictionary by their UTF-8 bytes and copies them into
+   * the name table arrays, starting at id first.
+   *
+   * @param names
+   *            names and the ids they were read with.
+   * @param starts
+   *            start of every name in bytes, filled in here.
+   * @param bytes
+   *            name bytes in final id order, filled in here.
+   * @param first
+   *            final id of the smallest name.
+   * @return final id of every name, indexed by the id it was read with.
+   */
+  private static int[] sortNames(ByteDictionary names, int[] starts, byte[] bytes, int first) {
+    int[] order = new int[names.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    sortRange(names, order, new long[order.length], 0, order.length, 0);
+
+    byte[] arena = names.arena();
+    int[] rename = new int[names.size()];
+    for (int rank = 0; rank < order.length; rank++) {
+      int id = order[rank];
+      int length = names.end(id) - names.start(id);
+      System.arraycopy(arena, names.start(id), bytes, starts[first + rank], length);
+      starts[first + rank + 1] = starts[first + rank] + length;
+      rename[id] = first + rank;
+    }
+    return rename;
+  }
+
+  /**
+   * Sorts part of order by the four name bytes found at depth, then sorts
+   * every run of names that share those bytes by the next four. Packing the
+   * bytes and the id into one long lets each step use the primitive sort,
+   * which is far faster than comparing byte arrays one pair at a time.
+   *
+   * @param names
+   *            names being sorted.
+   * @param order
+   *            ids to sort, sorted in place.
+   * @param keys
+   *            scratch space as long as order.
+   * @param from
+   *            first index of order to sort.
+   * @param to
+   *            one past the last index of order to sort.
+   * @param depth
+   *            number of leading bytes every name in the range shares.
+   */
+  private static void sortRange(ByteDictionary names, int[] order, long[] keys, int from, int to, int depth) {
+    byte[] arena = names.arena();
+    int longest = 0;
+    for (int i = from; i < to; i++) {
+      int id = order[i];
+      int prefix = 0;
+      for (int b = 0; b < 4; b++) { // names that have ended sort first, as if padded with zeros
+        int at = names.start(id) + depth + b;
+        prefix = (prefix << 8) | (at < names.end(id) ? arena[at] & 0xff : 0);
+      }
+      longest = Math.max(longest, names.end(id) - names.start(id));
+      keys[i] = ((long) (prefix ^ 0x80000000) << 32) | id; // flip the sign bit to compare unsigned
+    }
+    Arrays.sort(keys, from, to);
+    for (int i = from; i < to; i++) {
+      order[i] = (int) keys[i];
+    }
+    if (depth + 4 >= longest) { // every name has ended, nothing left to compare
+      return;
+    }
+    int run = from;
+    for (int i = from + 1; i <= to; i++) {
+      if (i == to || (keys[i] >>> 32) != (keys[run] >>> 32)) {
+        if (i - run > 1) {
+          sortRange(names, order, keys, run, i, depth + 4);
+        }
+        run = i;
+      }
+    }
+  }
+}
@@ -0,0 +1,322 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * GraphLoader.java Loads a local actor|movie file on every core. The file is
+ * cut into byte ranges that are moved forward to line boundaries, each range
+ * is parsed by its own thread into its own dictionaries and credit lists, and
+ * the pieces are merged into one GraphBuilder in file order. Lines are split
+ * by scanning the bytes for '|' and names are hashed straight out of the read
+ * buffer, so no String is made per line.
+ *
+ * A gzip file cannot be cut into ranges before it is inflated, so it is first
+ * inflated into memory on one thread and then parsed the same way.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class GraphLoader {
+  /** Bytes parsed by one task */
+  private static final int RANGE = 8 << 20;
+
+  /** Number of parsing threads */
+  private int threads;
+  /** Lines parsed by the last load */
+  private long lines;
+  /** Bytes parsed by the last load */
+  private long bytes;
+  /** Milliseconds taken by the last load */
+  private long millis;
+
+  /**
+   * Constructs a loader that uses every core.
+   */
+  public GraphLoader() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs a loader with a fixed number of threads.
+   *
+   * @param threads
+   *            number of parsing threads.
+   */
+  public GraphLoader(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * Loads a plain or gzip (.gz) actor|movie file.
+   *
+   * @param file
+   *            local database file.
+   * @return the loaded graph.
+   * @throws IOException
+   */
+  public Graph load(Path file) throws IOException {
+    long start = System.currentTimeMillis();
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+    try {
+      List<Future<Chunk>> chunks = new ArrayList<Future<Chunk>>();
+      if (file.toString().endsWith(".gz")) {
+        byte[] data = inflate(file);
+        this.bytes = data.length;
+        for (long from = 0; from < data.length; from += RANGE) {
+          int rangeStart = (int) from;
+          int rangeEnd = (int) Math.min(data.length, from + RANGE);
+          chunks.add(pool.submit(() -> parse(data, rangeStart, rangeEnd, data.length)));
+        }
+      } else {
+        long size = Files.size(file);
+        this.bytes = size;
+        for (long from = 0; from < size; from += RANGE) {
+          long rangeStart = from;
+          long rangeEnd = Math.min(size, from + RANGE);
+          chunks.add(pool.submit(() -> read(file, rangeStart, rangeEnd, size)));
+        }
+      }
+
+      GraphBuilder builder = new GraphBuilder();
+      this.lines = 0;
+      for (Future<Chunk> future : chunks) { // merge in file order, so ids come out the same every time
+        merge(builder, future.get());
+      }
+      Graph graph = builder.build();
+      this.millis = Math.max(1, System.currentTimeMillis() - start);
+      return graph;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading " + file, e);
+    } catch (ExecutionException e) {
+      throw new IOException("Could not load " + file, e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Lines parsed by the last load.
+   *
+   * @return number of lines.
+   */
+  public long lines() {
+    return this.lines;
+  }
+
+  /**
+   * Milliseconds taken by the last load, including building the graph.
+   *
+   * @return load time.
+   */
+  public long millis() {
+    return this.millis;
+  }
+
+  /**
+   * A one line summary of the last load.
+   *
+   * @return lines, time, lines per second and megabytes per second.
+   */
+  public String report() {
+    return this.lines + " lines in " + this.millis + " ms (" + (this.lines * 1000 / this.millis) + " lines/sec, "
+        + (this.bytes / 1000 / this.millis) + " MB/sec, " + this.threads + " threads)";
+  }
+
+  /**
+   * Reads one range of a file, plus the rest of the line it ends in, and
+   * parses it.
+   *
+   * @param file
+   *            database file.
+   * @param start
+   *            first byte of the range.
+   * @param end
+   *            one past the last byte of the range.
+   * @param size
+   *            size of the file.
+   * @return parsed range.
+   * @throws IOException
+   */
+  private static Chunk read(Path file, long start, long end, long size) throws IOException {
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+      long from = Math.max(0, start - 1); // one byte back to see whether start begins a line
+      byte[] buffer = new byte[(int) (end - from) + 4096];
+      int length = readFully(in, buffer, 0, (int) (end - from), from);
+      while (from + length < size && buffer[length - 1] != '\n') { // finish the last line
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        length += readFully(in, buffer, length, Math.min(4096, buffer.length - length), from + length);
+      }
+      int first = (int) (start - from);
+      return parse(buffer, first, first + (int) (end - start), length);
+    }
+  }
+
+  /**
+   * Reads up to count bytes at a file position, stopping early at the end of
+   * the file.
+   *
+   * @param in
+   *            open file.
+   * @param buffer
+   *            destination.
+   * @param offset
+   *            first index to fill.
+   * @param count
+   *            number of bytes wanted.
+   * @param position
+   *            file position of the first byte.
+   * @return number of bytes read.
+   * @throws IOException
+   */
+  private static int readFully(FileChannel in, byte[] buffer, int offset, int count, long position)
+      throws IOException {
+    ByteBuffer target = ByteBuffer.wrap(buffer, offset, count);
+    while (target.hasRemaining()) {
+      int read = in.read(target, position + target.position() - offset);
+      if (read < 0) {
+        break;
+      }
+    }
+    return target.position() - offset;
+  }
+
+  /**
+   * Parses every line that starts inside [start, end) of a buffer. A line
+   * that starts before start belongs to the previous range, and the last line
+   * may run past end up to limit.
+   *
+   * @param data
+   *            buffer holding the range.
+   * @param start
+   *            first byte of the range.
+   * @param end
+   *            one past the last byte of the range.
+   * @param limit
+   *            one past the last byte that may be read.
+   * @return parsed range.
+   */
+  private static Chunk parse(byte[] data, int start, int end, int limit) {
+    Chunk chunk = new Chunk();
+    int i = start;
+    if (start > 0 && data[start - 1] != '\n') { // skip the tail of a line owned by the previous range
+      while (i < limit && data[i] != '\n') {
+        i++;
+      }
+      i++;
+    }
+    while (i < end) { // every line that starts before end is ours
+      int lineStart = i;
+      int pipe = -1;
+      while (i < limit && data[i] != '\n') {
+        if (data[i] == '|' && pipe == -1) {
+          pipe = i;
+        }
+        i++;
+      }
+      int lineEnd = i;
+      if (lineEnd > lineStart && data[lineEnd - 1] == '\r') {
+        lineEnd--;
+      }
+      i++;
+      if (pipe == -1) { // blank or broken line
+        continue;
+      }
+      int movieEnd = lineEnd;
+      for (int p = pipe + 1; p < lineEnd; p++) { // like split, ignore anything after a second pipe
+        if (data[p] == '|') {
+          movieEnd = p;
+          break;
+        }
+      }
+      chunk.add(chunk.actors.add(data, lineStart, pipe), chunk.movies.add(data, pipe + 1, movieEnd));
+    }
+    return chunk;
+  }
+
+  /**
+   * Adds a parsed range to the builder, translating its ids into the
+   * builder's ids.
+   *
+   * @param builder
+   *            graph being built.
+   * @param chunk
+   *            parsed range.
+   */
+  private void merge(GraphBuilder builder, Chunk chunk) {
+    int[] actors = new int[chunk.actors.size()];
+    for (int a = 0; a < actors.length; a++) {
+      actors[a] = builder.actors().add(chunk.actors, a);
+    }
+    int[] movies = new int[chunk.movies.size()];
+    for (int m = 0; m < movies.length; m++) {
+      movies[m] = builder.movies().add(chunk.movies, m);
+    }
+    for (int c = 0; c < chunk.credits; c++) {
+      builder.addCredit(actors[chunk.creditActors[c]], movies[chunk.creditMovies[c]]);
+    }
+    this.lines += chunk.credits;
+  }
+
+  /**
+   * Inflates a whole gzip file into memory.
+   *
+   * @param file
+   *            gzip database file.
+   * @return inflated bytes.
+   * @throws IOException
+   */
+  private static byte[] inflate(Path file) throws IOException {
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 1 << 16)) {
+      return in.readAllBytes();
+    }
+  }
+
+  /**
+   * Names and credits parsed out of one range, with ids local to the range.
+   */
+  private static class Chunk {
+    /** Actor names in this range */
+    ByteDictionary actors = new ByteDictionary();
+    /** Movie titles in this range */
+    ByteDictionary movies = new ByteDictionary();
+    /** Local actor id of every credit */
+    int[] creditActors = new int[1024];
+    /** Local movie id of every credit */
+    int[] creditMovies = new int[1024];
+    /** Number of credits */
+    int credits;
+
+    /**
+     * Adds a credit.
+     *
+     * @param actor
+     *            local actor id.
+     * @param movie
+     *            local movie id.
+     */
+    void add(int actor, int movie) {
+      if (this.credits == this.creditActors.length) {
+        this.creditActors = Arrays.copyOf(this.creditActors, this.credits * 2);
+        this.creditMovies = Arrays.copyOf(this.creditMovies, this.credits * 2);
+      }
+      this.creditActors[this.credits] = actor;
+      this.creditMovies[this.credits] = movie;
+      this.credits++;
+    }
+  }
+}
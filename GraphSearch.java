@@ -0,0 +1,254 @@
+import java.nio.IntBuffer;
+
+/**
+ * GraphSearch.java Breadth first searches that stop as soon as they reach
+ * their target. They keep their state in the calling thread's SearchState, so
+ * they never write to the graph and can run on many threads at once.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class GraphSearch {
+  /**
+   * Searches out of one vertex until another is reached. Afterwards the
+   * returned state holds the distance from the start of every visited vertex
+   * and the vertex it was reached from. Vertices in different components are
+   * answered without searching at all.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param from
+   *            vertex to start at.
+   * @param to
+   *            vertex to stop at.
+   * @return this thread's search state.
+   */
+  public static SearchState search(Graph graph, int from, int to) {
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    SearchState state = SearchState.acquire(graph.vertexCount());
+    int[] queue = state.queue();
+    int head = 0;
+    int tail = 0;
+    long scanned = 0;
+    state.visit(from, 0, -1);
+    queue[tail++] = from;
+    if (graph.connected(from, to) == false) { // nothing to find
+      return state;
+    }
+    while (head < tail && state.visited(to) == false) {
+      int next = queue[head++];
+      int distance = state.distance(next) + 1;
+      for (int e = offsets.get(next); e < offsets.get(next + 1); e++) {
+        int neighbor = adjacency.get(e);
+        scanned++;
+        if (state.visit(neighbor, distance, next)) {
+          if (neighbor == to) { // found it, no need to look at the rest
+            Metrics.searched(head, scanned);
+            return state;
+          }
+          queue[tail++] = neighbor;
+        }
+      }
+    }
+    Metrics.searched(head, scanned);
+    return state;
+  }
+
+  /**
+   * Number of steps between two vertices, counting movies as a step.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param from
+   *            first vertex.
+   * @param to
+   *            second vertex.
+   * @return distance, or -1 if they are not connected.
+   */
+  public static int distance(Graph graph, int from, int to) {
+    return search(graph, from, to).distance(to);
+  }
+
+  /**
+   * Number of steps between two vertices when a path of at most limit steps
+   * is already known, for example from landmarks. Searches from both ends,
+   * one level of the smaller side at a time like shortestPath(), and gives
+   * up as soon as any path still to be found would be at least limit long.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param from
+   *            first vertex.
+   * @param to
+   *            second vertex.
+   * @param limit
+   *            length of a known path between them.
+   * @return distance, at most limit, or -1 if they are not connected.
+   */
+  public static int distance(Graph graph, int from, int to, int limit) {
+    if (from == to) {
+      return 0;
+    } else if (graph.connected(from, to) == false) {
+      return -1;
+    }
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    SearchState forward = SearchState.acquire(graph.vertexCount(), 0);
+    SearchState backward = SearchState.acquire(graph.vertexCount(), 1);
+    int[] forwardQueue = forward.queue();
+    int[] backwardQueue = backward.queue();
+    int[] heads = new int[2];
+    int[] tails = { 1, 1 };
+    int[] depths = new int[2]; // distance of each side's frontier
+    forward.visit(from, 0, -1);
+    forwardQueue[0] = from;
+    backward.visit(to, 0, -1);
+    backwardQueue[0] = to;
+
+    int best = limit;
+    long scanned = 0;
+    while (depths[0] + depths[1] + 1 < best && heads[0] < tails[0] && heads[1] < tails[1]) {
+      int s = tails[0] - heads[0] <= tails[1] - heads[1] ? 0 : 1;
+      SearchState side = s == 0 ? forward : backward;
+      SearchState other = s == 0 ? backward : forward;
+      int[] queue = s == 0 ? forwardQueue : backwardQueue;
+      int levelEnd = tails[s];
+      for (; heads[s] < levelEnd; heads[s]++) {
+        int next = queue[heads[s]];
+        int distance = side.distance(next) + 1;
+        scanned += offsets.get(next + 1) - offsets.get(next);
+        for (int e = offsets.get(next); e < offsets.get(next + 1); e++) {
+          int neighbor = adjacency.get(e);
+          if (other.visited(neighbor)) {
+            best = Math.min(best, distance + other.distance(neighbor));
+          } else if (side.visit(neighbor, distance, next)) {
+            queue[tails[s]++] = neighbor;
+          }
+        }
+      }
+      depths[s]++;
+    }
+    Metrics.searched(heads[0] + heads[1], scanned);
+    return best;
+  }
+
+  /**
+   * Shortest path between two vertices, written as names joined by arrows.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param from
+   *            first vertex.
+   * @param to
+   *            second vertex.
+   * @return path from "from" to "to", or null if they are not connected.
+   */
+  public static String path(Graph graph, int from, int to) {
+    SearchState state = search(graph, to, from); // search backwards so parents point towards "to"
+    if (state.visited(from) == false) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int step = from; step != to; step = state.parent(step)) {
+      sb.append(graph.name(step));
+      sb.append(" --> ");
+    }
+    sb.append(graph.name(to));
+    return sb.toString();
+  }
+
+  /**
+   * Shortest path between two vertices found by searching from both ends at
+   * once. Each round expands one whole level of whichever side has the
+   * smaller frontier, so a path through a huge movie is found after looking
+   * at a small part of the graph instead of everything within its distance.
+   * The search stops after the first level in which the two sides meet, and
+   * the shortest of the meetings in that level is the answer.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param from
+   *            first vertex.
+   * @param to
+   *            second vertex.
+   * @return vertices of the path from "from" to "to", or null if they are
+   *         not connected.
+   */
+  public static int[] shortestPath(Graph graph, int from, int to) {
+    if (from == to) {
+      return new int[] { from };
+    } else if (graph.connected(from, to) == false) {
+      return null;
+    }
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    SearchState forward = SearchState.acquire(graph.vertexCount(), 0);
+    SearchState backward = SearchState.acquire(graph.vertexCount(), 1);
+    int[] forwardQueue = forward.queue();
+    int[] backwardQueue = backward.queue();
+    int forwardHead = 0;
+    int forwardTail = 0;
+    int backwardHead = 0;
+    int backwardTail = 0;
+    forward.visit(from, 0, -1);
+    forwardQueue[forwardTail++] = from;
+    backward.visit(to, 0, -1);
+    backwardQueue[backwardTail++] = to;
+
+    int best = -1; // length of the shortest meeting so far
+    int meetForward = -1; // the meeting edge, seen from each side
+    int meetBackward = -1;
+    long scanned = 0;
+    while (best == -1 && forwardHead < forwardTail && backwardHead < backwardTail) {
+      boolean expandForward = forwardTail - forwardHead <= backwardTail - backwardHead;
+      SearchState side = expandForward ? forward : backward;
+      SearchState other = expandForward ? backward : forward;
+      int[] queue = expandForward ? forwardQueue : backwardQueue;
+      int head = expandForward ? forwardHead : backwardHead;
+      int tail = expandForward ? forwardTail : backwardTail;
+      int levelEnd = tail;
+      Metrics.level(side.distance(queue[head]), levelEnd - head);
+      for (; head < levelEnd; head++) { // one whole level, so the best meeting in it is found
+        int next = queue[head];
+        int distance = side.distance(next) + 1;
+        scanned += offsets.get(next + 1) - offsets.get(next);
+        for (int e = offsets.get(next); e < offsets.get(next + 1); e++) {
+          int neighbor = adjacency.get(e);
+          if (other.visited(neighbor)) {
+            int length = distance + other.distance(neighbor);
+            if (best == -1 || length < best) {
+              best = length;
+              meetForward = expandForward ? next : neighbor;
+              meetBackward = expandForward ? neighbor : next;
+            }
+          } else if (side.visit(neighbor, distance, next)) {
+            queue[tail++] = neighbor;
+          }
+        }
+      }
+      if (expandForward) {
+        forwardHead = head;
+        forwardTail = tail;
+      } else {
+        backwardHead = head;
+        backwardTail = tail;
+      }
+    }
+    Metrics.searched(forwardHead + backwardHead, scanned);
+    if (best == -1) {
+      return null;
+    }
+
+    int[] path = new int[best + 1];
+    int at = forward.distance(meetForward);
+    for (int step = meetForward; step != -1; step = forward.parent(step)) { // from the meeting back to "from"
+      path[at--] = step;
+    }
+    at = forward.distance(meetForward) + 1;
+    for (int step = meetBackward; step != -1; step = backward.parent(step)) { // and on to "to"
+      path[at++] = step;
+    }
+    return path;
+  }
+}
@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GraphSnapshot.java Writes a Graph to a binary file once and maps it back in
+ * on later runs. Opening a snapshot does no parsing and builds no objects: the
+ * graph reads its offsets, adjacency and names straight out of the read-only
+ * mapped pages, which the operating system shares between every process that
+ * maps the same file.
+ *
+ * The file is little endian and laid out as a header (magic, version, actor
+ * count, movie count, adjacency length, name byte length, component count)
+ * followed by the offsets, the adjacency, the NameTable block starts, its
+ * front-coded names, the component of every vertex and the number of actors
+ * in every component.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class GraphSnapshot {
+  /** Magic number at the start of every snapshot ("BACONSNP" read as a long) */
+  public static final long MAGIC = 0x4241434F4E534E50L;
+  /** Layout version, bumped whenever the file format changes */
+  public static final int VERSION = 3;
+  /** Size of the header in bytes */
+  private static final int HEADER = 40;
+
+  /**
+   * Writes a graph to a snapshot file, replacing the file if it exists.
+   *
+   * @param graph
+   *            graph to save.
+   * @param file
+   *            snapshot file.
+   * @throws IOException
+   */
+  public static void write(Graph graph, Path file) throws IOException {
+    IntBuffer offsets = graph.offsets().duplicate();
+    IntBuffer adjacency = graph.adjacency().duplicate();
+    IntBuffer starts = graph.names().starts();
+    ByteBuffer bytes = graph.names().bytes();
+    IntBuffer labels = graph.components().labels().duplicate();
+    IntBuffer sizes = graph.components().sizes().duplicate();
+    offsets.clear();
+    adjacency.clear();
+    starts.clear();
+    bytes.clear();
+    labels.clear();
+    sizes.clear();
+
+    try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+      header.putLong(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(graph.actorCount());
+      header.putInt(graph.movieCount());
+      header.putInt(adjacency.remaining());
+      header.putLong(bytes.remaining());
+      header.putInt(sizes.remaining());
+      header.putInt(0); // padding
+      header.flip();
+      writeFully(out, header);
+      writeInts(out, offsets);
+      writeInts(out, adjacency);
+      writeInts(out, starts);
+      writeFully(out, bytes);
+      writeInts(out, labels);
+      writeInts(out, sizes);
+    }
+  }
+
+  /**
+   * Maps a snapshot file into memory.
+   *
+   * @param file
+   *            snapshot written by write().
+   * @return graph backed by the mapped file.
+   * @throws IOException
+   *             if the file is not a snapshot or was written by another
+   *             version.
+   */
+  public static Graph open(Path file) throws IOException {
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+      if (header.getLong() != MAGIC) {
+        throw new IOException(file + " is not a Kevin Bacon graph snapshot");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException(file + " is snapshot version " + version + ", expected " + VERSION);
+      }
+      int actorCount = header.getInt();
+      int movieCount = header.getInt();
+      int edges = header.getInt();
+      long nameBytes = header.getLong();
+      int componentCount = header.getInt();
+      int vertexCount = actorCount + movieCount;
+
+      long position = HEADER;
+      IntBuffer offsets = mapInts(in, position, vertexCount + 1);
+      position += 4L * (vertexCount + 1);
+      IntBuffer adjacency = mapInts(in, position, edges);
+      position += 4L * edges;
+      int blocks = (vertexCount + NameTable.BLOCK - 1) / NameTable.BLOCK;
+      IntBuffer starts = mapInts(in, position, blocks + 1);
+      position += 4L * (blocks + 1);
+      ByteBuffer bytes = in.map(FileChannel.MapMode.READ_ONLY, position, nameBytes);
+      position += nameBytes;
+      IntBuffer labels = mapInts(in, position, vertexCount);
+      position += 4L * vertexCount;
+      IntBuffer sizes = mapInts(in, position, componentCount);
+
+      NameTable names = new NameTable(actorCount, vertexCount, starts, bytes);
+      Components components = new Components(labels, sizes);
+      return new Graph(actorCount, movieCount, offsets, adjacency, names, components);
+    }
+  }
+
+  /**
+   * Maps a run of little endian ints.
+   *
+   * @param in
+   *            open snapshot file.
+   * @param position
+   *            byte position of the first int.
+   * @param count
+   *            number of ints.
+   * @return read-only view of the ints.
+   * @throws IOException
+   */
+  private static IntBuffer mapInts(FileChannel in, long position, int count) throws IOException {
+    return in.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+  }
+
+  /**
+   * Writes ints as little endian bytes through a fixed size buffer.
+   *
+   * @param out
+   *            snapshot file.
+   * @param ints
+   *            ints to write.
+   * @throws IOException
+   */
+  private static void writeInts(FileChannel out, IntBuffer ints) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    while (ints.hasRemaining()) {
+      buffer.clear();
+      while (ints.hasRemaining() && buffer.remaining() >= 4) {
+        buffer.putInt(ints.get());
+      }
+      buffer.flip();
+      writeFully(out, buffer);
+    }
+  }
+
+  /**
+   * Writes every remaining byte of a buffer.
+   *
+   * @param out
+   *            snapshot file.
+   * @param buffer
+   *            bytes to write.
+   * @throws IOException
+   */
+  private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+  }
+}
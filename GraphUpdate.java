@@ -0,0 +1,501 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * GraphUpdate.java A batch of credits to add to and remove from a graph, such
+ * as a daily IMDB delta. Applying it makes a new Graph next to the old one
+ * (which may be a mapped snapshot and can't be written). The offsets and
+ * adjacency are still copied in full, but in bulk: every run of actors and
+ * movies whose credits did not change is one copy, and only the changed ones
+ * are rebuilt entry by entry. When names are added, every copied neighbor is
+ * renamed as well. A credit for an actor or movie the graph doesn't have yet
+ * adds the name; names are never removed, an actor whose last credit goes just
+ * can't reach anybody.
+ *
+ * Ids only change when names are added, since names stay sorted; the result
+ * tells how old ids map to new ones and which credits really changed, which
+ * is what CenterTree.repair() needs to fix its distances without searching
+ * the whole graph again, and what the new graph needs to carry the
+ * components, name index and degree index of the old one over instead of
+ * building them again.
+ *
+ * A delta file has one credit per line: +actor|movie to add it and
+ * -actor|movie to remove it (a line without a sign is added). Later lines win
+ * over earlier ones.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class GraphUpdate {
+  /** Credits in the order given */
+  private List<Credit> credits = new ArrayList<Credit>();
+
+  /**
+   * One credit to add or remove.
+   */
+  private static class Credit {
+    /** Actor name */
+    String actor;
+    /** Movie title */
+    String movie;
+    /** True to add the credit, false to remove it */
+    boolean add;
+
+    /**
+     * Constructs a credit.
+     *
+     * @param actor
+     *            actor name.
+     * @param movie
+     *            movie title.
+     * @param add
+     *            true to add, false to remove.
+     */
+    Credit(String actor, String movie, boolean add) {
+      this.actor = actor;
+      this.movie = movie;
+      this.add = add;
+    }
+  }
+
+  /**
+   * The graph after an update, and what changed.
+   */
+  public static class Result {
+    /** The graph before the update */
+    public final Graph before;
+    /** The graph after the update */
+    public final Graph graph;
+    /** New id of every old vertex, or null if no id changed */
+    private int[] rename;
+    /** Credits that were added, as actor and movie ids in the new graph */
+    private int[] added;
+    /** Credits that were removed, as actor and movie ids in the new graph */
+    private int[] removed;
+    /** New ids of the names that were added, sorted */
+    private int[] fresh;
+    /** New ids of every vertex whose credits changed, new names included, sorted */
+    private int[] changed;
+
+    /**
+     * Constructs a result.
+     *
+     * @param before
+     *            old graph.
+     * @param graph
+     *            new graph.
+     * @param rename
+     *            new id of every old vertex, or null.
+     * @param added
+     *            added actor and movie pairs.
+     * @param removed
+     *            removed actor and movie pairs.
+     * @param fresh
+     *            new ids of the added names, sorted.
+     * @param changed
+     *            new ids of the vertices whose credits changed, sorted.
+     */
+    Result(Graph before, Graph graph, int[] rename, int[] added, int[] removed, int[] fresh, int[] changed) {
+      this.before = before;
+      this.graph = graph;
+      this.rename = rename;
+      this.added = added;
+      this.removed = removed;
+      this.fresh = fresh;
+      this.changed = changed;
+    }
+
+    /**
+     * Id in the new graph of a vertex of the old graph.
+     *
+     * @param v
+     *            old vertex id.
+     * @return new vertex id.
+     */
+    public int renamed(int v) {
+      return this.rename == null ? v : this.rename[v];
+    }
+
+    /**
+     * Id in the old graph of a vertex of the new graph.
+     *
+     * @param v
+     *            new vertex id.
+     * @return old vertex id, -1 for a name the update added.
+     */
+    public int original(int v) {
+      int before = Arrays.binarySearch(this.fresh, v);
+      return before >= 0 ? -1 : v + before + 1; // every added name below v moved it up by one
+    }
+
+    /**
+     * Ids in the new graph of the actors and movies the update added.
+     *
+     * @return new vertex ids, sorted.
+     */
+    public int[] fresh() {
+      return this.fresh;
+    }
+
+    /**
+     * Vertices whose credits changed, the added names included. Every other
+     * vertex has the same neighbors as before, renamed.
+     *
+     * @return new vertex ids, sorted.
+     */
+    public int[] changed() {
+      return this.changed;
+    }
+
+    /**
+     * Credits that were added, as actor and movie id pairs in the new graph.
+     *
+     * @return added pairs.
+     */
+    public int[] added() {
+      return this.added;
+    }
+
+    /**
+     * Credits that were removed, as actor and movie id pairs in the new
+     * graph.
+     *
+     * @return removed pairs.
+     */
+    public int[] removed() {
+      return this.removed;
+    }
+
+    /**
+     * A one line summary of the update.
+     */
+    public String toString() {
+      return this.added.length / 2 + " credits added, " + this.removed.length / 2 + " removed, "
+          + (this.graph.vertexCount() - this.before.vertexCount()) + " new names";
+    }
+  }
+
+  /**
+   * Adds a credit.
+   *
+   * @param actor
+   *            actor name.
+   * @param movie
+   *            movie title.
+   */
+  public void add(String actor, String movie) {
+    this.credits.add(new Credit(actor, movie, true));
+  }
+
+  /**
+   * Removes a credit.
+   *
+   * @param actor
+   *            actor name.
+   * @param movie
+   *            movie title.
+   */
+  public void remove(String actor, String movie) {
+    this.credits.add(new Credit(actor, movie, false));
+  }
+
+  /**
+   * Number of credits in the update.
+   *
+   * @return credit count.
+   */
+  public int size() {
+    return this.credits.size();
+  }
+
+  /**
+   * Reads a delta file.
+   *
+   * @param file
+   *            one +actor|movie or -actor|movie per line.
+   * @return the update.
+   * @throws IOException
+   */
+  public static GraphUpdate read(Path file) throws IOException {
+    GraphUpdate update = new GraphUpdate();
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        boolean add = line.startsWith("-") == false;
+        String credit = line.startsWith("+") || line.startsWith("-") ? line.substring(1) : line;
+        int bar = credit.indexOf('|');
+        if (bar == -1) { // blank or broken line
+          continue;
+        }
+        if (add) {
+          update.add(credit.substring(0, bar), credit.substring(bar + 1));
+        } else {
+          update.remove(credit.substring(0, bar), credit.substring(bar + 1));
+        }
+      }
+    }
+    return update;
+  }
+
+  /**
+   * Makes the graph with this update applied.
+   *
+   * @param graph
+   *            graph to update, left as it is.
+   * @return the new graph and what changed.
+   */
+  public Result apply(Graph graph) {
+    // NEW NAMES//
+    TreeSet<byte[]> newActors = new TreeSet<byte[]>(Arrays::compareUnsigned);
+    TreeSet<byte[]> newMovies = new TreeSet<byte[]>(Arrays::compareUnsigned);
+    for (Credit credit : this.credits) {
+      if (credit.add) { // removing a credit never adds a name
+        if (graph.actor(credit.actor) == -1) {
+          newActors.add(credit.actor.getBytes(StandardCharsets.UTF_8));
+        }
+        if (graph.movie(credit.movie) == -1) {
+          newMovies.add(credit.movie.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    }
+    NameTable names = graph.names();
+    int[] rename = null;
+    int actorCount = graph.actorCount() + newActors.size();
+    int movieCount = graph.movieCount() + newMovies.size();
+    if (newActors.isEmpty() == false || newMovies.isEmpty() == false) {
+      rename = rename(graph, newActors, newMovies);
+      names = names.with(newActors.toArray(new byte[0][]), newMovies.toArray(new byte[0][]));
+    }
+
+    // NET CHANGES//
+    LinkedHashSet<Long> added = new LinkedHashSet<Long>();
+    LinkedHashSet<Long> removed = new LinkedHashSet<Long>();
+    for (Credit credit : this.credits) {
+      int actor = names.actor(credit.actor);
+      int movie = names.movie(credit.movie);
+      if (actor == -1 || movie == -1) { // removing a credit of an unknown name
+        continue;
+      }
+      Long key = ((long) actor << 32) | movie;
+      boolean existed = existed(graph, rename, actor, movie);
+      if (credit.add) {
+        if (removed.remove(key) == false && existed == false) {
+          added.add(key);
+        }
+      } else if (added.remove(key) == false && existed) {
+        removed.add(key);
+      }
+    }
+
+    // WHAT CHANGED, BY NEW ID//
+    int[] fresh = new int[newActors.size() + newMovies.size()];
+    int count = 0;
+    for (byte[] name : newActors) { // names sort the same way as their ids
+      fresh[count++] = names.actor(new String(name, StandardCharsets.UTF_8));
+    }
+    for (byte[] name : newMovies) {
+      fresh[count++] = names.movie(new String(name, StandardCharsets.UTF_8));
+    }
+    TreeSet<Integer> touched = new TreeSet<Integer>();
+    for (int v : fresh) {
+      touched.add(v);
+    }
+    long[] extra = new long[2 * added.size()]; // added neighbors, vertex in the high half
+    count = 0;
+    for (long key : added) {
+      int actor = (int) (key >>> 32);
+      int movie = (int) key;
+      extra[count++] = ((long) actor << 32) | movie;
+      extra[count++] = ((long) movie << 32) | actor;
+      touched.add(actor);
+      touched.add(movie);
+    }
+    Arrays.sort(extra);
+    for (long key : removed) {
+      touched.add((int) (key >>> 32));
+      touched.add((int) key);
+    }
+    int[] changed = new int[touched.size()];
+    count = 0;
+    for (int v : touched) {
+      changed[count++] = v;
+    }
+
+    // NEW ADJACENCY, COPIED IN RUNS OF UNCHANGED VERTICES//
+    int vertexCount = actorCount + movieCount;
+    IntBuffer oldOffsets = graph.offsets();
+    IntBuffer oldAdjacency = graph.adjacency();
+    long length = oldAdjacency.limit() + extra.length;
+    for (int c = 0, f = 0; c < changed.length; c++) { // a credit listed more than once loses every copy
+      if (f < fresh.length && fresh[f] == changed[c]) {
+        f++;
+        continue;
+      }
+      int v = changed[c] - f;
+      for (int e = oldOffsets.get(v); e < oldOffsets.get(v + 1); e++) {
+        if (removes(removed, rename, changed[c], oldAdjacency.get(e))) {
+          length--;
+        }
+      }
+    }
+    int[] offsets = new int[vertexCount + 1];
+    int[] adjacency = new int[(int) length];
+    int position = 0;
+    int next = 0; // first new id not filled in yet
+    int below = 0; // added names below next, so next - below is its old id
+    int x = 0; // next added neighbor
+    for (int c = 0; c <= changed.length; c++) {
+      int u = c < changed.length ? changed[c] : vertexCount;
+      if (u > next) { // old vertices next up to u, neighbors unchanged
+        int from = next - below;
+        int to = u - below;
+        int start = oldOffsets.get(from);
+        int run = oldOffsets.get(to) - start;
+        oldOffsets.get(from, offsets, next, to - from);
+        if (position != start) {
+          for (int w = next; w < u; w++) {
+            offsets[w] += position - start;
+          }
+        }
+        oldAdjacency.get(start, adjacency, position, run);
+        if (rename != null) {
+          for (int e = position; e < position + run; e++) {
+            adjacency[e] = rename[adjacency[e]];
+          }
+        }
+        position += run;
+      }
+      if (u == vertexCount) {
+        break;
+      }
+      offsets[u] = position;
+      if (below < fresh.length && fresh[below] == u) {
+        below++;
+      } else { // an old vertex, copied around its removed credits
+        int v = u - below;
+        for (int e = oldOffsets.get(v); e < oldOffsets.get(v + 1); e++) {
+          int w = oldAdjacency.get(e);
+          if (removes(removed, rename, u, w) == false) {
+            adjacency[position++] = rename == null ? w : rename[w];
+          }
+        }
+      }
+      while (x < extra.length && (int) (extra[x] >>> 32) == u) {
+        adjacency[position++] = (int) extra[x++];
+      }
+      next = u + 1;
+    }
+    offsets[vertexCount] = position;
+    Graph updated = new Graph(actorCount, movieCount, IntBuffer.wrap(offsets), IntBuffer.wrap(adjacency), names);
+    Result result = new Result(graph, updated, rename, pairs(added), pairs(removed), fresh, changed);
+    updated.carry(result);
+    return result;
+  }
+
+  /**
+   * Whether an entry of a vertex's old neighbors is a removed credit.
+   *
+   * @param removed
+   *            removed credits, actor in the high half.
+   * @param rename
+   *            new id of every old vertex, or null if ids did not change.
+   * @param u
+   *            new id of the vertex.
+   * @param neighbor
+   *            old id of the neighbor.
+   * @return true if the credit between them is removed.
+   */
+  private static boolean removes(Set<Long> removed, int[] rename, int u, int neighbor) {
+    int w = rename == null ? neighbor : rename[neighbor];
+    return removed.contains(u < w ? ((long) u << 32) | w : ((long) w << 32) | u);
+  }
+
+  /**
+   * New id of every old vertex once new names are merged in where they sort.
+   *
+   * @param graph
+   *            old graph.
+   * @param newActors
+   *            new actor names.
+   * @param newMovies
+   *            new movie titles.
+   * @return new id of every old vertex.
+   */
+  private static int[] rename(Graph graph, TreeSet<byte[]> newActors, TreeSet<byte[]> newMovies) {
+    int[] actorsBefore = new int[graph.actorCount() + 1]; // new names that sort right before each old one
+    int[] moviesBefore = new int[graph.movieCount() + 1];
+    for (byte[] name : newActors) {
+      actorsBefore[graph.names().rank(new String(name, StandardCharsets.UTF_8), true)]++;
+    }
+    for (byte[] name : newMovies) {
+      moviesBefore[graph.names().rank(new String(name, StandardCharsets.UTF_8), false)]++;
+    }
+    int[] rename = new int[graph.vertexCount()];
+    int shift = 0;
+    for (int a = 0; a < graph.actorCount(); a++) {
+      shift += actorsBefore[a];
+      rename[a] = a + shift;
+    }
+    shift = newActors.size(); // every new actor comes before the movies
+    for (int m = 0; m < graph.movieCount(); m++) {
+      shift += moviesBefore[m];
+      rename[graph.actorCount() + m] = graph.actorCount() + m + shift;
+    }
+    return rename;
+  }
+
+  /**
+   * Whether the old graph had a credit, given new ids.
+   *
+   * @param graph
+   *            old graph.
+   * @param rename
+   *            new id of every old vertex, or null.
+   * @param actor
+   *            new actor id.
+   * @param movie
+   *            new movie id.
+   * @return true if the credit was there.
+   */
+  private static boolean existed(Graph graph, int[] rename, int actor, int movie) {
+    int oldActor = rename == null ? actor : Arrays.binarySearch(rename, 0, graph.actorCount(), actor);
+    if (oldActor < 0) { // a new actor
+      return false;
+    }
+    IntBuffer offsets = graph.offsets();
+    for (int e = offsets.get(oldActor); e < offsets.get(oldActor + 1); e++) {
+      int m = graph.adjacency().get(e);
+      if ((rename == null ? m : rename[m]) == movie) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Unpacks actor and movie keys into pairs.
+   *
+   * @param keys
+   *            actor id in the high half, movie id in the low half.
+   * @return actor and movie ids, one pair after the other.
+   */
+  private static int[] pairs(LinkedHashSet<Long> keys) {
+    int[] pairs = new int[keys.size() * 2];
+    int i = 0;
+    for (long key : keys) {
+      pairs[i++] = (int) (key >>> 32);
+      pairs[i++] = (int) key;
+    }
+    return pairs;
+  }
+}
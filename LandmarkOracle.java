@@ -0,0 +1,338 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * LandmarkOracle.java Answers how many degrees apart two actors are without a
+ * search for most pairs. A few landmark actors are searched once, and the
+ * Bacon number of every actor to every landmark is kept in a byte. For any
+ * two actors x and y and a landmark l, the triangle inequality gives
+ *
+ * |d(x, l) - d(y, l)| <= d(x, y) <= d(x, l) + d(l, y)
+ *
+ * so the best of these over all landmarks bounds the distance in O(k). When
+ * the bounds meet, that is the answer; otherwise a search from both ends that
+ * gives up once nothing shorter than the upper bound is left finishes it.
+ *
+ * The distances of one actor to every landmark are next to each other, so a
+ * pair costs two short reads. An oracle can be saved next to a snapshot and
+ * mapped back in the same way.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class LandmarkOracle {
+  /** Magic number at the start of every file ("BACONLMK" read as a long) */
+  public static final long MAGIC = 0x4241434F4E4C4D4BL;
+  /** Layout version, bumped whenever the file format changes */
+  public static final int VERSION = 2;
+  /** Default number of landmarks */
+  public static final int DEFAULT_LANDMARKS = 16;
+  /** Size of the header in bytes */
+  private static final int HEADER = 32;
+  /** Stored for actors that a landmark cannot reach, or that are too far to fit */
+  private static final byte UNKNOWN = -1;
+
+  /**
+   * How landmarks are picked.
+   */
+  public enum Selection {
+    /** The actors with the most credits */
+    DEGREE,
+    /**
+     * The actors with the most credits that have never been in a movie with
+     * an earlier landmark, so the landmarks are spread over the graph
+     */
+    COVERAGE
+  }
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Landmark actors */
+  private int[] landmarks;
+  /** Bacon number of every actor to every landmark, actor after actor */
+  private ByteBuffer distance;
+
+  /**
+   * Bounds on the Bacon number between two actors.
+   */
+  public static class Bounds {
+    /** No smaller than this */
+    public final int lower;
+    /** No larger than this, Integer.MAX_VALUE if no landmark knows */
+    public final int upper;
+
+    /**
+     * Constructs bounds.
+     *
+     * @param lower
+     *            lower bound.
+     * @param upper
+     *            upper bound.
+     */
+    public Bounds(int lower, int upper) {
+      this.lower = lower;
+      this.upper = upper;
+    }
+
+    /**
+     * Whether the bounds meet, so the distance is known.
+     *
+     * @return true if exact.
+     */
+    public boolean exact() {
+      return this.lower == this.upper;
+    }
+
+    public String toString() {
+      return exact() ? Integer.toString(this.lower) : this.lower + ".." + this.upper;
+    }
+  }
+
+  /**
+   * Picks landmarks and searches out of each of them.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param count
+   *            number of landmarks.
+   * @param selection
+   *            how to pick them.
+   */
+  public LandmarkOracle(Graph graph, int count, Selection selection) {
+    this.graph = graph;
+    this.landmarks = select(graph, count, selection);
+    int k = this.landmarks.length;
+    byte[] distance = new byte[graph.actorCount() * k];
+    int[] hops = new int[graph.vertexCount()];
+    BitsetBfs bfs = new BitsetBfs(graph, Runtime.getRuntime().availableProcessors() > 1);
+    for (int l = 0; l < k; l++) {
+      bfs.run(this.landmarks[l], hops, null, null);
+      for (int a = 0; a < graph.actorCount(); a++) {
+        distance[a * k + l] = hops[a] < 0 || hops[a] / 2 > Byte.MAX_VALUE ? UNKNOWN : (byte) (hops[a] / 2);
+      }
+    }
+    this.distance = ByteBuffer.wrap(distance);
+  }
+
+  /**
+   * Constructs an oracle out of distances that are already known.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param landmarks
+   *            landmark actors.
+   * @param distance
+   *            Bacon number of every actor to every landmark.
+   */
+  private LandmarkOracle(Graph graph, int[] landmarks, ByteBuffer distance) {
+    this.graph = graph;
+    this.landmarks = landmarks;
+    this.distance = distance;
+  }
+
+  /**
+   * Picks landmark actors.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param count
+   *            number of landmarks.
+   * @param selection
+   *            how to pick them.
+   * @return landmark ids, at most count of them.
+   */
+  private static int[] select(Graph graph, int count, Selection selection) {
+    long[] byDegree = new long[graph.actorCount()];
+    for (int a = 0; a < byDegree.length; a++) {
+      byDegree[a] = ((long) graph.degree(a) << 32) | a;
+    }
+    Arrays.sort(byDegree); // fewest credits first, so the best are at the end
+
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    boolean[] covered = new boolean[selection == Selection.COVERAGE ? graph.actorCount() : 0];
+    int[] landmarks = new int[Math.min(count, graph.actorCount())];
+    int found = 0;
+    for (int i = byDegree.length - 1; i >= 0 && found < landmarks.length; i--) {
+      int actor = (int) byDegree[i];
+      if (selection == Selection.COVERAGE) {
+        if (covered[actor]) {
+          continue;
+        }
+        for (int e = offsets.get(actor); e < offsets.get(actor + 1); e++) { // everybody in its movies
+          int movie = adjacency.get(e);
+          for (int f = offsets.get(movie); f < offsets.get(movie + 1); f++) {
+            covered[adjacency.get(f)] = true;
+          }
+        }
+      }
+      landmarks[found++] = actor;
+    }
+    return Arrays.copyOf(landmarks, found);
+  }
+
+  /**
+   * Bounds on the Bacon number between two actors, from the landmarks alone.
+   *
+   * @param x
+   *            actor id.
+   * @param y
+   *            actor id.
+   * @return the bounds; both -1 if the actors are not connected.
+   */
+  public Bounds bounds(int x, int y) {
+    if (x == y) {
+      return new Bounds(0, 0);
+    } else if (this.graph.connected(x, y) == false) {
+      return new Bounds(-1, -1);
+    }
+    int k = this.landmarks.length;
+    int lower = 1;
+    int upper = Integer.MAX_VALUE;
+    for (int l = 0; l < k; l++) {
+      int dx = this.distance.get(x * k + l);
+      int dy = this.distance.get(y * k + l);
+      if (dx != UNKNOWN && dy != UNKNOWN) {
+        upper = Math.min(upper, dx + dy);
+        lower = Math.max(lower, Math.abs(dx - dy));
+      }
+    }
+    return new Bounds(lower, upper);
+  }
+
+  /**
+   * Bacon number between two actors: straight from the landmarks when their
+   * bounds meet, otherwise by a search cut off at the upper bound.
+   *
+   * @param x
+   *            actor id.
+   * @param y
+   *            actor id.
+   * @return Bacon number, or -1 if they are not connected.
+   */
+  public int distance(int x, int y) {
+    Bounds bounds = bounds(x, y);
+    if (bounds.exact()) {
+      return bounds.lower;
+    }
+    int limit = bounds.upper == Integer.MAX_VALUE ? Integer.MAX_VALUE : 2 * bounds.upper;
+    return GraphSearch.distance(this.graph, x, y, limit) / 2;
+  }
+
+  /**
+   * Landmark actors.
+   *
+   * @return landmark ids, a copy.
+   */
+  public int[] landmarks() {
+    return this.landmarks.clone();
+  }
+
+  /**
+   * Memory taken by the distances.
+   *
+   * @return size in bytes.
+   */
+  public long bytes() {
+    return this.distance.capacity();
+  }
+
+  /**
+   * Writes the oracle to a file, replacing the file if it exists.
+   *
+   * @param file
+   *            file to write, usually the snapshot's name plus .landmarks.
+   * @throws IOException
+   */
+  public void write(Path file) throws IOException {
+    try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER + 4 * this.landmarks.length).order(ByteOrder.LITTLE_ENDIAN);
+      header.putLong(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(this.graph.actorCount());
+      header.putInt(this.landmarks.length);
+      header.putInt(this.graph.adjacency().limit());
+      header.putLong(checksum(this.graph));
+      for (int landmark : this.landmarks) {
+        header.putInt(landmark);
+      }
+      header.flip();
+      ByteBuffer distance = this.distance.duplicate();
+      distance.clear();
+      while (header.hasRemaining()) {
+        out.write(header);
+      }
+      while (distance.hasRemaining()) {
+        out.write(distance);
+      }
+    }
+  }
+
+  /**
+   * Maps an oracle written by write() into memory.
+   *
+   * @param file
+   *            oracle file.
+   * @param graph
+   *            graph the oracle was built over.
+   * @return oracle backed by the mapped file.
+   * @throws IOException
+   *             if the file is not an oracle, was written by another
+   *             version or for a graph with other actors or credits.
+   */
+  public static LandmarkOracle open(Path file, Graph graph) throws IOException {
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+      if (header.getLong() != MAGIC) {
+        throw new IOException(file + " is not a landmark file");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException(file + " is landmark version " + version + ", expected " + VERSION);
+      }
+      int actorCount = header.getInt();
+      if (actorCount != graph.actorCount()) {
+        throw new IOException(file + " has " + actorCount + " actors, the graph " + graph.actorCount());
+      }
+      int k = header.getInt();
+      int edges = header.getInt();
+      if (edges != graph.adjacency().limit() || header.getLong() != checksum(graph)) {
+        throw new IOException(file + " was written for other credits than the graph's");
+      }
+      IntBuffer ids = in.map(FileChannel.MapMode.READ_ONLY, HEADER, 4L * k).order(ByteOrder.LITTLE_ENDIAN)
+          .asIntBuffer();
+      int[] landmarks = new int[k];
+      ids.get(landmarks);
+      ByteBuffer distance = in.map(FileChannel.MapMode.READ_ONLY, HEADER + 4L * k, (long) actorCount * k);
+      return new LandmarkOracle(graph, landmarks, distance);
+    }
+  }
+
+  /**
+   * Hash of every credit of a graph, so an oracle is never used with a graph
+   * that has as many actors as its own but other credits.
+   *
+   * @param graph
+   *            actors and movies.
+   * @return hash of the offsets and adjacency.
+   */
+  private static long checksum(Graph graph) {
+    long hash = graph.vertexCount();
+    IntBuffer offsets = graph.offsets();
+    for (int i = 0; i < offsets.limit(); i++) {
+      hash = (hash + offsets.get(i)) * 0x9E3779B97F4A7C15L;
+    }
+    IntBuffer adjacency = graph.adjacency();
+    for (int i = 0; i < adjacency.limit(); i++) {
+      hash = (hash + adjacency.get(i)) * 0x9E3779B97F4A7C15L;
+    }
+    return hash ^ (hash >>> 31);
+  }
+}
@@ -0,0 +1,118 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram.java Counts how long operations took in log-linear buckets
+ * of microseconds: every power of two is split into 16 buckets, so any
+ * recorded time is known to within about 6% while the whole range from a
+ * microsecond to days fits in a few hundred counters. Recording is one atomic
+ * increment, so any number of threads can share a histogram.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class LatencyHistogram {
+  /** Buckets per power of two */
+  private static final int SUB = 16;
+  /** Enough buckets for any long */
+  private static final int BUCKETS = (64 - 3) * SUB;
+
+  /** Number of times in every bucket */
+  private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Records one operation.
+   *
+   * @param nanos
+   *            how long it took in nanoseconds.
+   */
+  public void record(long nanos) {
+    this.counts.incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+  }
+
+  /**
+   * Bucket of a time.
+   *
+   * @param micros
+   *            time in microseconds.
+   * @return bucket index.
+   */
+  private static int bucket(long micros) {
+    if (micros < SUB) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros); // at least 4
+    return (exponent - 3) * SUB + (int) ((micros >>> (exponent - 4)) & (SUB - 1));
+  }
+
+  /**
+   * Smallest time that falls in a bucket.
+   *
+   * @param bucket
+   *            bucket index.
+   * @return time in microseconds.
+   */
+  private static long low(int bucket) {
+    if (bucket < SUB) {
+      return bucket;
+    }
+    int exponent = bucket / SUB + 3;
+    return (long) (SUB + bucket % SUB) << (exponent - 4);
+  }
+
+  /**
+   * Number of operations recorded.
+   *
+   * @return count.
+   */
+  public long count() {
+    long count = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      count += this.counts.get(b);
+    }
+    return count;
+  }
+
+  /**
+   * Time that a share of the operations took at most.
+   *
+   * @param share
+   *            between 0 and 1, for example 0.99.
+   * @return time in microseconds, 0 if nothing was recorded.
+   */
+  public long percentile(double share) {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      counts[b] = this.counts.get(b);
+      count += counts[b];
+    }
+    long wanted = (long) Math.ceil(share * count);
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += counts[b];
+      if (seen >= wanted && counts[b] > 0) {
+        return b + 1 < BUCKETS ? low(b + 1) - 1 : Long.MAX_VALUE;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Count and the usual percentiles as a JSON object.
+   *
+   * @return JSON text.
+   */
+  public String toJson() {
+    return "{\"count\":" + count() + ",\"p50us\":" + percentile(0.5) + ",\"p90us\":" + percentile(0.9)
+        + ",\"p99us\":" + percentile(0.99) + ",\"p999us\":" + percentile(0.999) + ",\"maxus\":" + percentile(1)
+        + "}";
+  }
+
+  /**
+   * Count and the usual percentiles on one line.
+   */
+  public String toString() {
+    return count() + " ops, p50 " + percentile(0.5) + " us, p90 " + percentile(0.9) + " us, p99 "
+        + percentile(0.99) + " us, p99.9 " + percentile(0.999) + " us, max " + percentile(1) + " us";
+  }
+}
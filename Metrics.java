@@ -0,0 +1,309 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Metrics.java Counts what every operation of the game costs: how often it
+ * ran and how long it took (a LatencyHistogram per operation), how many
+ * vertices the searches under it expanded and edges they scanned, and how
+ * big their frontier was at every level. Every operation is also a JFR event,
+ * so a flight recording shows slow calls next to GC and allocation.
+ *
+ * An operation is timed by start()ing a trace and closing it. The searches
+ * never see the trace: they count in local variables and hand the totals to
+ * whatever trace the thread has open, once per search or level, so leaving
+ * this on costs a thread local lookup and a few atomic adds per call. A trace
+ * started inside another one (find inside longest) counts towards both.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class Metrics {
+  /** Deepest level whose frontier is recorded; deeper levels are added to it */
+  private static final int LEVELS = 64;
+  /** Every operation that has run, by name */
+  private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<String, Operation>();
+  /** Innermost trace open on each thread */
+  private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<Trace>();
+
+  /**
+   * Totals of one kind of operation.
+   */
+  private static class Operation {
+    /** How long every call took */
+    final LatencyHistogram latency = new LatencyHistogram();
+    /** Vertices expanded by all calls */
+    final LongAdder vertices = new LongAdder();
+    /** Edges scanned by all calls */
+    final LongAdder edges = new LongAdder();
+    /** Frontier sizes of all calls, summed per level */
+    final AtomicLongArray frontier = new AtomicLongArray(LEVELS);
+  }
+
+  /**
+   * JFR event of one operation.
+   */
+  @Name("bacon.Operation")
+  @Label("Bacon Operation")
+  @Category("Bacon Number")
+  @Description("One call of a game operation and the searching it did")
+  static class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+    @Label("Vertices Expanded")
+    long vertices;
+    @Label("Edges Scanned")
+    long edges;
+    @Label("Levels")
+    int levels;
+  }
+
+  /**
+   * One running operation. Searches on other threads can add to it, so its
+   * counts are atomic.
+   */
+  public static class Trace implements AutoCloseable {
+    /** Totals this call is added to */
+    private Operation operation;
+    /** Name of the operation */
+    private String name;
+    /** Trace this one was started inside of, or null */
+    private Trace outer;
+    /** When the call started */
+    private long start = System.nanoTime();
+    /** Vertices expanded so far */
+    private AtomicLong vertices = new AtomicLong();
+    /** Edges scanned so far */
+    private AtomicLong edges = new AtomicLong();
+    /** Frontier sizes so far, allocated by the first level */
+    private volatile AtomicLongArray frontier;
+    /** JFR event, timed from start to close */
+    private OperationEvent event = new OperationEvent();
+
+    /**
+     * Starts a trace.
+     *
+     * @param name
+     *            name of the operation.
+     * @param outer
+     *            trace already open on this thread, or null.
+     */
+    private Trace(String name, Trace outer) {
+      this.name = name;
+      this.outer = outer;
+      this.operation = OPERATIONS.computeIfAbsent(name, n -> new Operation());
+      this.event.begin();
+    }
+
+    /**
+     * Adds the cost of a search.
+     *
+     * @param vertices
+     *            vertices expanded.
+     * @param edges
+     *            edges scanned.
+     */
+    public void searched(long vertices, long edges) {
+      this.vertices.addAndGet(vertices);
+      this.edges.addAndGet(edges);
+    }
+
+    /**
+     * Adds one level of a search.
+     *
+     * @param hops
+     *            distance of the level from the source.
+     * @param size
+     *            vertices in the level.
+     */
+    public void level(int hops, long size) {
+      if (this.frontier == null) {
+        synchronized (this) {
+          if (this.frontier == null) {
+            this.frontier = new AtomicLongArray(LEVELS);
+          }
+        }
+      }
+      this.frontier.addAndGet(Math.min(hops, LEVELS - 1), size);
+    }
+
+    /**
+     * Finishes the operation, adding it to its totals and to the trace it
+     * was started in.
+     */
+    public void close() {
+      long vertices = this.vertices.get();
+      long edges = this.edges.get();
+      this.operation.latency.record(System.nanoTime() - this.start);
+      this.operation.vertices.add(vertices);
+      this.operation.edges.add(edges);
+      int levels = 0;
+      if (this.frontier != null) {
+        for (int hops = 0; hops < LEVELS; hops++) {
+          long size = this.frontier.get(hops);
+          if (size > 0) {
+            this.operation.frontier.addAndGet(hops, size);
+            if (this.outer != null) {
+              this.outer.level(hops, size);
+            }
+            levels = hops + 1;
+          }
+        }
+      }
+      if (this.outer != null) {
+        this.outer.searched(vertices, edges);
+      }
+      if (CURRENT.get() == this) {
+        CURRENT.set(this.outer);
+      }
+      this.event.end();
+      if (this.event.shouldCommit()) {
+        this.event.operation = this.name;
+        this.event.vertices = vertices;
+        this.event.edges = edges;
+        this.event.levels = levels;
+        this.event.commit();
+      }
+    }
+  }
+
+  /**
+   * Starts timing an operation on this thread.
+   *
+   * @param name
+   *            name of the operation.
+   * @return the trace, to be closed when the operation is done.
+   */
+  public static Trace start(String name) {
+    Trace trace = new Trace(name, CURRENT.get());
+    CURRENT.set(trace);
+    return trace;
+  }
+
+  /**
+   * The innermost trace open on this thread, to hand to threads that search
+   * for it.
+   *
+   * @return open trace, or null.
+   */
+  public static Trace current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Makes a trace this thread's current one, for a worker searching on
+   * behalf of an operation started elsewhere.
+   *
+   * @param trace
+   *            trace to add to, or null for none.
+   * @return the trace that was current before, to put back afterwards.
+   */
+  public static Trace adopt(Trace trace) {
+    Trace before = CURRENT.get();
+    CURRENT.set(trace);
+    return before;
+  }
+
+  /**
+   * Adds the cost of a search to this thread's trace, if it has one.
+   *
+   * @param vertices
+   *            vertices expanded.
+   * @param edges
+   *            edges scanned.
+   */
+  public static void searched(long vertices, long edges) {
+    Trace trace = CURRENT.get();
+    if (trace != null) {
+      trace.searched(vertices, edges);
+    }
+  }
+
+  /**
+   * Adds one level of a search to this thread's trace, if it has one.
+   *
+   * @param hops
+   *            distance of the level from the source.
+   * @param size
+   *            vertices in the level.
+   */
+  public static void level(int hops, long size) {
+    Trace trace = CURRENT.get();
+    if (trace != null) {
+      trace.level(hops, size);
+    }
+  }
+
+  /**
+   * Forgets everything recorded so far.
+   */
+  public static void reset() {
+    OPERATIONS.clear();
+  }
+
+  /**
+   * Names of the operations that have run, sorted.
+   *
+   * @return operation names.
+   */
+  private static List<String> names() {
+    List<String> names = new ArrayList<String>(OPERATIONS.keySet());
+    names.sort(null);
+    return names;
+  }
+
+  /**
+   * Every operation on a few lines: calls and latency, the average vertices
+   * and edges per call, and the average frontier at every level.
+   *
+   * @return the report.
+   */
+  public static String report() {
+    StringBuilder sb = new StringBuilder();
+    for (String name : names()) {
+      Operation operation = OPERATIONS.get(name);
+      long calls = Math.max(1, operation.latency.count());
+      sb.append(name).append(": ").append(operation.latency).append('\n');
+      sb.append("  ").append(operation.vertices.sum() / calls).append(" vertices expanded, ")
+          .append(operation.edges.sum() / calls).append(" edges scanned per call\n");
+      StringBuilder levels = new StringBuilder();
+      for (int hops = 0; hops < LEVELS; hops++) {
+        long size = operation.frontier.get(hops);
+        if (size > 0) {
+          levels.append(levels.length() == 0 ? "" : ", ").append(hops).append(':').append(size / calls);
+        }
+      }
+      if (levels.length() > 0) {
+        sb.append("  frontier per level ").append(levels).append('\n');
+      }
+    }
+    return sb.length() == 0 ? "Nothing recorded yet\n" : sb.toString();
+  }
+
+  /**
+   * Every operation as a JSON object.
+   *
+   * @return {"operation": {"count", percentiles..., "vertices", "edges"}}.
+   */
+  public static String toJson() {
+    StringBuilder sb = new StringBuilder("{");
+    for (String name : names()) {
+      Operation operation = OPERATIONS.get(name);
+      String latency = operation.latency.toJson();
+      sb.append(sb.length() == 1 ? "" : ",").append('"').append(name).append("\":")
+          .append(latency, 0, latency.length() - 1).append(",\"vertices\":").append(operation.vertices.sum())
+          .append(",\"edges\":").append(operation.edges.sum()).append('}');
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -0,0 +1,396 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * MultiSourceBfs.java Breadth first search out of up to 64 actors at once.
+ * Every vertex carries a 64 bit mask of the sources that have reached it, so
+ * one pass over the graph moves all 64 searches forward a level with a few
+ * bitwise operations per edge. Searches out of nearby actors overlap almost
+ * completely, which makes a batch cost about as much as a handful of single
+ * searches.
+ *
+ * Each level is expanded top-down (frontier vertices push their masks to
+ * their neighbors) while the frontier is small, and bottom-up (every vertex
+ * of the next kind ORs together the masks of its neighbors) once it is large;
+ * bottom-up levels are split across the common fork-join pool in parallel
+ * mode. An instance keeps its masks between batches and must only be used by
+ * one thread at a time.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class MultiSourceBfs {
+  /** Sources searched together, one per bit of a mask */
+  public static final int LANES = 64;
+  /** Go bottom-up once the frontier's edges exceed 1/ALPHA of all edges */
+  private static final int ALPHA = 14;
+  /** Vertices per parallel task */
+  private static final int CHUNK = 64 * 256;
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Whether bottom-up levels are split across threads */
+  private boolean parallel;
+  /** Sources that have reached each vertex */
+  private long[] seen;
+  /** Sources whose current level contains each vertex */
+  private long[] frontier;
+  /** Sources whose next level contains each vertex */
+  private long[] next;
+  /** Per actor totals the current batch adds to, or null */
+  private Totals totals;
+
+  /**
+   * Distances out of one source actor.
+   */
+  public static class Result {
+    /** Id of the source actor */
+    public final int actor;
+    /** Number of actors at every Bacon number, the source at 0 */
+    public final long[] counts;
+
+    /**
+     * Constructs a result.
+     *
+     * @param actor
+     *            id of the source.
+     * @param counts
+     *            number of actors at every Bacon number.
+     */
+    public Result(int actor, long[] counts) {
+      this.actor = actor;
+      this.counts = counts;
+    }
+
+    /**
+     * Number of actors the source reaches, itself included.
+     *
+     * @return reached actors.
+     */
+    public long reach() {
+      long reach = 0;
+      for (long count : this.counts) {
+        reach += count;
+      }
+      return reach;
+    }
+
+    /**
+     * Sum of the Bacon numbers of every reachable actor.
+     *
+     * @return total distance.
+     */
+    public long total() {
+      long total = 0;
+      for (int b = 0; b < this.counts.length; b++) {
+        total += b * this.counts[b];
+      }
+      return total;
+    }
+
+    /**
+     * Average Bacon number, the same as avgdist() with this source as the
+     * center.
+     *
+     * @return average distance.
+     */
+    public double average() {
+      return (double) total() / reach();
+    }
+  }
+
+  /**
+   * Bacon numbers out of many sources added up per actor: how many sources
+   * reached it and the sum and sum of squares of their Bacon numbers. Since
+   * Bacon numbers are symmetric, this is a sample of every actor's own
+   * distances when the sources are picked at random.
+   */
+  public static class Totals {
+    /** Sum of the Bacon numbers of every actor */
+    public final int[] sums;
+    /** Sum of the squared Bacon numbers of every actor */
+    public final int[] squares;
+    /** Number of sources that reached every actor */
+    public final int[] reached;
+
+    /**
+     * Constructs empty totals.
+     *
+     * @param actorCount
+     *            number of actors.
+     */
+    public Totals(int actorCount) {
+      this.sums = new int[actorCount];
+      this.squares = new int[actorCount];
+      this.reached = new int[actorCount];
+    }
+  }
+
+  /**
+   * Constructs a search kernel for a graph.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param parallel
+   *            whether to split large levels across threads.
+   */
+  public MultiSourceBfs(Graph graph, boolean parallel) {
+    this.graph = graph;
+    this.parallel = parallel;
+    this.seen = new long[graph.vertexCount()];
+    this.frontier = new long[graph.vertexCount()];
+    this.next = new long[graph.vertexCount()];
+  }
+
+  /**
+   * Searches out of any number of actors, LANES at a time.
+   *
+   * @param sources
+   *            actor ids.
+   * @return the distances out of every source, in the same order.
+   */
+  public Result[] run(int[] sources) {
+    Result[] results = new Result[sources.length];
+    for (int from = 0; from < sources.length; from += LANES) {
+      int[] batch = Arrays.copyOfRange(sources, from, Math.min(sources.length, from + LANES));
+      System.arraycopy(batch(batch), 0, results, from, batch.length);
+    }
+    return results;
+  }
+
+  /**
+   * Searches out of any number of actors, adding every actor's Bacon number
+   * from each of them to its totals.
+   *
+   * @param sources
+   *            actor ids.
+   * @param totals
+   *            per actor totals to add to.
+   */
+  public void add(int[] sources, Totals totals) {
+    this.totals = totals;
+    try {
+      for (int from = 0; from < sources.length; from += LANES) {
+        int[] batch = Arrays.copyOfRange(sources, from, Math.min(sources.length, from + LANES));
+        for (int source : batch) { // each source is at 0 from itself
+          totals.reached[source]++;
+        }
+        batch(batch);
+      }
+    } finally {
+      this.totals = null;
+    }
+  }
+
+  /**
+   * Searches out of up to LANES actors in one pass.
+   *
+   * @param sources
+   *            actor ids.
+   * @return the distances out of every source, in the same order.
+   */
+  public Result[] batch(int[] sources) {
+    if (sources.length > LANES) {
+      throw new IllegalArgumentException("at most " + LANES + " sources per batch");
+    }
+    Arrays.fill(this.seen, 0);
+    Arrays.fill(this.frontier, 0);
+    Arrays.fill(this.next, 0);
+    for (int lane = 0; lane < sources.length; lane++) {
+      this.seen[sources[lane]] |= 1L << lane;
+      this.frontier[sources[lane]] |= 1L << lane;
+    }
+    long all = sources.length == LANES ? -1L : (1L << sources.length) - 1;
+
+    int actorCount = this.graph.actorCount();
+    int vertexCount = this.graph.vertexCount();
+    long edges = this.graph.adjacency().limit();
+    long frontierEdges = 0;
+    for (int source : sources) {
+      frontierEdges += this.graph.degree(source);
+    }
+    List<long[]> levels = new ArrayList<long[]>(); // actors per lane at every Bacon number
+    long[] first = new long[LANES];
+    Arrays.fill(first, 0, sources.length, 1);
+    levels.add(first);
+
+    boolean frontierIsActors = true;
+    int hops = 0;
+    long frontierSize = sources.length;
+    long expanded = 0; // vertices and edges, handed to Metrics once at the end
+    long scanned = 0;
+    while (true) {
+      int low = frontierIsActors ? actorCount : 0; // the next level is the other kind
+      int high = frontierIsActors ? vertexCount : actorCount;
+      Metrics.level(hops, frontierSize);
+      expanded += frontierSize;
+      if (frontierEdges > edges / ALPHA) {
+        scanned += bottomUp(low, high, all);
+      } else {
+        topDown(frontierIsActors ? 0 : actorCount, frontierIsActors ? actorCount : vertexCount);
+        scanned += frontierEdges;
+      }
+      hops++;
+      long[] counts = new long[LANES + 2]; // per lane, then the edges and size of the new frontier
+      boolean found = count(low, high, hops % 2 == 0 ? hops / 2 : -1, counts);
+      if (found == false) {
+        break;
+      }
+      frontierSize = counts[LANES + 1];
+      if (hops % 2 == 0) {
+        levels.add(Arrays.copyOf(counts, LANES));
+      }
+      frontierEdges = counts[LANES];
+      Arrays.fill(this.frontier, frontierIsActors ? 0 : actorCount, frontierIsActors ? actorCount : vertexCount,
+          0);
+      long[] swap = this.frontier;
+      this.frontier = this.next;
+      this.next = swap;
+      frontierIsActors = !frontierIsActors;
+    }
+    Metrics.searched(expanded, scanned);
+
+    Result[] results = new Result[sources.length];
+    for (int lane = 0; lane < sources.length; lane++) {
+      long[] counts = new long[levels.size()];
+      for (int b = 0; b < counts.length; b++) {
+        counts[b] = levels.get(b)[lane];
+      }
+      int last = counts.length;
+      while (last > 1 && counts[last - 1] == 0) {
+        last--;
+      }
+      results[lane] = new Result(sources[lane], Arrays.copyOf(counts, last));
+    }
+    return results;
+  }
+
+  /**
+   * Pushes the masks of every frontier vertex to its neighbors.
+   *
+   * @param low
+   *            first vertex that can be in the frontier.
+   * @param high
+   *            one past the last vertex that can be in the frontier.
+   */
+  private void topDown(int low, int high) {
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    for (int u = low; u < high; u++) {
+      long mask = this.frontier[u];
+      if (mask == 0) {
+        continue;
+      }
+      for (int e = offsets.get(u); e < offsets.get(u + 1); e++) {
+        int v = adjacency.get(e);
+        long fresh = mask & ~this.seen[v];
+        if (fresh != 0) {
+          this.next[v] |= fresh;
+          this.seen[v] |= fresh;
+        }
+      }
+    }
+  }
+
+  /**
+   * Has every vertex of the next kind collect the masks of its neighbors.
+   * Each vertex only writes its own masks, so ranges can run on any thread.
+   *
+   * @param low
+   *            first vertex that can be in the next level.
+   * @param high
+   *            one past the last vertex that can be in the next level.
+   * @param all
+   *            mask of every source in the batch.
+   * @return edges looked at.
+   */
+  private long bottomUp(int low, int high, long all) {
+    if (this.parallel && high - low > CHUNK) {
+      int chunks = (high - low + CHUNK - 1) / CHUNK;
+      return IntStream.range(0, chunks).parallel().mapToLong(c -> {
+        return bottomUpRange(low + c * CHUNK, Math.min(high, low + (c + 1) * CHUNK), all);
+      }).sum();
+    }
+    return bottomUpRange(low, high, all);
+  }
+
+  /**
+   * Bottom-up step over one range of vertices.
+   *
+   * @param from
+   *            first vertex.
+   * @param to
+   *            one past the last vertex.
+   * @param all
+   *            mask of every source in the batch.
+   * @return edges looked at.
+   */
+  private long bottomUpRange(int from, int to, long all) {
+    IntBuffer offsets = this.graph.offsets();
+    IntBuffer adjacency = this.graph.adjacency();
+    long scanned = 0;
+    for (int v = from; v < to; v++) {
+      long missing = all & ~this.seen[v];
+      if (missing == 0) { // every source has been here already
+        continue;
+      }
+      long fresh = 0;
+      int end = offsets.get(v + 1);
+      int e = offsets.get(v);
+      for (; e < end && fresh != missing; e++) {
+        fresh |= this.frontier[adjacency.get(e)] & missing;
+      }
+      scanned += e - offsets.get(v);
+      if (fresh != 0) {
+        this.next[v] = fresh;
+        this.seen[v] |= fresh;
+      }
+    }
+    return scanned;
+  }
+
+  /**
+   * Counts the new level per source, and the edges it will expand next.
+   *
+   * @param low
+   *            first vertex that can be in the new level.
+   * @param high
+   *            one past the last vertex that can be in the new level.
+   * @param bacon
+   *            Bacon number of the new level if it is actors, the only ones
+   *            counted per source, or -1 for movies.
+   * @param counts
+   *            gets the count of every lane, then the edges, then the
+   *            vertices.
+   * @return false if no source reached anything new.
+   */
+  private boolean count(int low, int high, int bacon, long[] counts) {
+    IntBuffer offsets = this.graph.offsets();
+    boolean found = false;
+    for (int v = low; v < high; v++) {
+      long mask = this.next[v];
+      if (mask == 0) {
+        continue;
+      }
+      found = true;
+      counts[LANES] += offsets.get(v + 1) - offsets.get(v);
+      counts[LANES + 1]++;
+      if (bacon != -1 && this.totals != null) {
+        int sources = Long.bitCount(mask);
+        this.totals.sums[v] += sources * bacon;
+        this.totals.squares[v] += sources * bacon * bacon;
+        this.totals.reached[v] += sources;
+      }
+      if (bacon != -1) {
+        while (mask != 0) {
+          counts[Long.numberOfTrailingZeros(mask)]++;
+          mask &= mask - 1;
+        }
+      }
+    }
+    return found;
+  }
+}
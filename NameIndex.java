@@ -0,0 +1,469 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * NameIndex.java Suggests actors for a name that is not quite right: names
+ * that start with what was typed, and names within a few typos of it. Names
+ * are compared in lower case and without the IMDb number in brackets, so
+ * "kevin bacon" finds "Kevin Bacon (I)".
+ *
+ * Fuzzy matches come out of an inverted index of trigrams. Actors are sorted
+ * by name, so actors with the same name ("John Smith (I)", "John Smith
+ * (II)", ...) are next to each other, and every run of them is one key,
+ * listed under the (hashed) three letter pieces of its name. One typo (a
+ * letter added, dropped or changed, or two letters swapped) changes at most
+ * four trigrams, so a name within d typos of the query shares at least one
+ * of any 4d + 1 trigrams of the query, and only the keys listed under the
+ * query's 4d + 1 rarest trigrams are candidates. Candidates are then checked
+ * with an edit distance that gives up as soon as it is over budget. The
+ * lists are two int arrays, an offset per trigram and the keys one list
+ * after the other, as in the graph itself.
+ *
+ * An updated graph takes the index of the graph before it. If the update
+ * added no actors, the ids did not change and the index is shared as it is.
+ * Otherwise only the names next to the new ones are compared, to see where
+ * keys start now, and only keys that did not exist before are listed under
+ * their trigrams; the old lists are copied with their keys renumbered.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class NameIndex {
+  /** Number of trigram hashes, a power of two */
+  private static final int BUCKETS = 1 << 20;
+  /** Typos allowed by suggest(), per this many letters typed */
+  private static final int LETTERS_PER_TYPO = 4;
+  /** Most typos suggest() allows */
+  private static final int MAX_TYPOS = 3;
+
+  /** Actors and movies */
+  private Graph graph;
+  /** First actor of every key, with one extra entry at the end */
+  private int[] keys;
+  /** Where the keys of every trigram start in lists, with one extra entry at the end */
+  private int[] offsets;
+  /** Keys of every trigram, one list after the other */
+  private int[] lists;
+
+  /**
+   * Indexes every actor name of a graph.
+   *
+   * @param graph
+   *            actors and movies.
+   */
+  public NameIndex(Graph graph) {
+    this.graph = graph;
+    int[] offsets = new int[BUCKETS + 1];
+    int[] count = new int[1];
+    String[] previous = new String[1];
+    graph.names().visit(0, graph.actorCount(), (id, name, length) -> {
+      String key = normalize(new String(name, 0, length, StandardCharsets.UTF_8));
+      if (key.equals(previous[0]) == false) { // a new key
+        previous[0] = key;
+        for (int hash : trigrams(key)) {
+          offsets[hash + 1]++;
+        }
+        count[0]++;
+      }
+    });
+    for (int b = 0; b < BUCKETS; b++) {
+      offsets[b + 1] += offsets[b];
+    }
+
+    int[] next = Arrays.copyOf(offsets, BUCKETS);
+    int[] lists = new int[offsets[BUCKETS]];
+    this.keys = new int[count[0] + 1];
+    count[0] = 0;
+    previous[0] = null;
+    graph.names().visit(0, graph.actorCount(), (id, name, length) -> {
+      String key = normalize(new String(name, 0, length, StandardCharsets.UTF_8));
+      if (key.equals(previous[0]) == false) {
+        previous[0] = key;
+        for (int hash : trigrams(key)) {
+          lists[next[hash]++] = count[0]; // keys come in order, so every list is sorted
+        }
+        this.keys[count[0]++] = id;
+      }
+    });
+    this.keys[count[0]] = graph.actorCount();
+    this.offsets = offsets;
+    this.lists = lists;
+  }
+
+  /**
+   * Index of the actor names of an updated graph, out of the index of the
+   * graph before it.
+   *
+   * @param before
+   *            index of the old graph.
+   * @param update
+   *            the update.
+   */
+  public NameIndex(NameIndex before, GraphUpdate.Result update) {
+    Graph graph = update.graph;
+    this.graph = graph;
+    int[] fresh = update.fresh();
+    int added = 0; // new actors, which come before the new movies
+    while (added < fresh.length && graph.isActor(fresh[added])) {
+      added++;
+    }
+    if (added == 0) { // actor ids did not change
+      this.keys = before.keys;
+      this.offsets = before.offsets;
+      this.lists = before.lists;
+      return;
+    }
+
+    // WHERE KEYS START NOW//
+    int oldKeys = before.keys.length - 1;
+    int[] extra = new int[2 * added]; // new actors and the ones after them, which may start a key now
+    for (int i = 0; i < added; i++) {
+      extra[2 * i] = fresh[i];
+      extra[2 * i + 1] = fresh[i] + 1;
+    }
+    int[] starts = new int[oldKeys + extra.length];
+    int[] renumbered = new int[oldKeys]; // new number of every old key
+    boolean[] old = new boolean[starts.length]; // whether a new key is an old one
+    int count = 0;
+    int k = 0;
+    int x = 0;
+    while (k < oldKeys || x < extra.length) {
+      int next = k < oldKeys ? update.renamed(before.keys[k]) : Integer.MAX_VALUE;
+      int c = x < extra.length && extra[x] < next ? extra[x] : next;
+      while (x < extra.length && extra[x] == c) {
+        x++;
+      }
+      if (c >= graph.actorCount()) {
+        continue;
+      }
+      boolean start;
+      if (c == next && isFresh(fresh, added, c) == false && isFresh(fresh, added, c - 1) == false) {
+        start = true; // same name before it as before the update
+      } else {
+        start = c == 0 || normalize(graph.name(c)).equals(normalize(graph.name(c - 1))) == false;
+      }
+      if (start) {
+        starts[count++] = c;
+      }
+      if (c == next) {
+        renumbered[k++] = count - 1; // in the key that starts at it or before it
+        old[count - 1] = true;
+      }
+    }
+    this.keys = Arrays.copyOf(starts, count + 1);
+    this.keys[count] = graph.actorCount();
+
+    // TRIGRAMS OF THE NEW KEYS//
+    long[] listed = new long[16]; // trigram in the high half, key in the low half
+    int size = 0;
+    for (int key = 0; key < count; key++) {
+      if (old[key]) {
+        continue;
+      }
+      for (int hash : trigrams(normalize(graph.name(starts[key])))) {
+        if (size == listed.length) {
+          listed = Arrays.copyOf(listed, 2 * size);
+        }
+        listed[size++] = ((long) hash << 32) | key;
+      }
+    }
+    Arrays.sort(listed, 0, size);
+    int[] offsets = new int[BUCKETS + 1];
+    int[] lists = new int[before.lists.length + size];
+    int l = 0;
+    int position = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      offsets[b] = position;
+      for (int e = before.offsets[b]; e < before.offsets[b + 1]; e++) { // both in key order
+        int key = renumbered[before.lists[e]];
+        while (l < size && (int) (listed[l] >>> 32) == b && (int) listed[l] < key) {
+          lists[position++] = (int) listed[l++];
+        }
+        lists[position++] = key;
+      }
+      while (l < size && (int) (listed[l] >>> 32) == b) {
+        lists[position++] = (int) listed[l++];
+      }
+    }
+    offsets[BUCKETS] = position;
+    this.offsets = offsets;
+    this.lists = lists;
+  }
+
+  /**
+   * Whether an actor was added by an update.
+   *
+   * @param fresh
+   *            new ids of the added names, sorted.
+   * @param actors
+   *            number of them that are actors.
+   * @param v
+   *            actor id.
+   * @return true for a new actor.
+   */
+  private static boolean isFresh(int[] fresh, int actors, int v) {
+    return Arrays.binarySearch(fresh, 0, actors, v) >= 0;
+  }
+
+  /**
+   * Lower case name without the IMDb number in brackets at the end.
+   *
+   * @param name
+   *            actor name.
+   * @return the name as it is compared.
+   */
+  static String normalize(String name) {
+    int end = name.length();
+    if (end > 3 && name.charAt(end - 1) == ')') {
+      int open = name.lastIndexOf(" (");
+      boolean roman = open > 0 && open + 2 < end - 1;
+      for (int i = open + 2; roman && i < end - 1; i++) {
+        roman = "IVXLCDM".indexOf(name.charAt(i)) >= 0;
+      }
+      if (roman) {
+        end = open;
+      }
+    }
+    return name.substring(0, end).trim().toLowerCase();
+  }
+
+  /**
+   * Hashes of the distinct trigrams of a normalized name, padded with two
+   * spaces in front and one behind so short names and first letters count.
+   *
+   * @param name
+   *            normalized name.
+   * @return sorted distinct hashes.
+   */
+  private static int[] trigrams(String name) {
+    String padded = "  " + name + " ";
+    int[] hashes = new int[padded.length() - 2];
+    for (int i = 0; i < hashes.length; i++) {
+      int h = (padded.charAt(i) * 31 + padded.charAt(i + 1)) * 31 + padded.charAt(i + 2);
+      hashes[i] = (h ^ (h >>> 16)) & (BUCKETS - 1);
+    }
+    Arrays.sort(hashes);
+    int distinct = 0;
+    for (int i = 0; i < hashes.length; i++) {
+      if (i == 0 || hashes[i] != hashes[i - 1]) {
+        hashes[distinct++] = hashes[i];
+      }
+    }
+    return Arrays.copyOf(hashes, distinct);
+  }
+
+  /**
+   * Actors whose name starts with a prefix, exactly as typed or with every
+   * word capitalized. Names are sorted, so each form is one range of ids, and
+   * one pass over the ranges keeps the k with the most credits; an actor that
+   * does not beat the last of those costs one comparison.
+   *
+   * @param prefix
+   *            start of the name.
+   * @param k
+   *            most actors returned.
+   * @return actor ids, most credits first, then by name.
+   */
+  public int[] prefix(String prefix, int k) {
+    List<int[]> ranges = new ArrayList<int[]>();
+    long length = 0;
+    String capitalized = capitalize(prefix);
+    for (String start : capitalized.equals(prefix) ? List.of(prefix) : List.of(prefix, capitalized)) {
+      int[] range = this.graph.names().range(start, true);
+      ranges.add(range);
+      length += range[1] - range[0];
+    }
+    int[] ids = new int[(int) Math.max(0, Math.min(k, length))];
+
+    // KEEPING THE k WITH THE MOST CREDITS//
+    int found = 0;
+    for (int[] range : ranges) {
+      for (int a = range[0]; a < range[1]; a++) {
+        int degree = this.graph.degree(a);
+        if (found == ids.length && (found == 0 || this.graph.degree(ids[found - 1]) >= degree)) {
+          continue; // not better than the k kept so far, which is nearly every actor of a wide range
+        }
+        int i = found < ids.length ? found++ : ids.length - 1;
+        while (i > 0 && this.graph.degree(ids[i - 1]) < degree) { // ties stay in name order
+          ids[i] = ids[i - 1];
+          i--;
+        }
+        ids[i] = a;
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Capitalizes the first letter of every word.
+   *
+   * @param s
+   *            text.
+   * @return capitalized text.
+   */
+  private static String capitalize(String s) {
+    char[] chars = s.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      if (i == 0 || chars[i - 1] == ' ') {
+        chars[i] = Character.toUpperCase(chars[i]);
+      }
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Actors whose name is within a number of typos (letters added, dropped,
+   * changed or swapped) of a query.
+   *
+   * @param query
+   *            name as typed.
+   * @param k
+   *            most actors returned.
+   * @param typos
+   *            most typos allowed; fewer are allowed for queries too short
+   *            to have 4 * typos + 1 trigrams.
+   * @return actor ids, fewest typos first, then most credits.
+   */
+  public int[] fuzzy(String query, int k, int typos) {
+    String normalized = normalize(query);
+    int[] hashes = trigrams(normalized);
+    typos = Math.min(typos, (hashes.length - 1) / 4);
+
+    // CANDIDATES FROM THE RAREST TRIGRAMS//
+    Integer[] rarest = new Integer[hashes.length];
+    for (int i = 0; i < hashes.length; i++) {
+      rarest[i] = hashes[i];
+    }
+    Arrays.sort(rarest, (a, b) -> Integer.compare(this.offsets[a + 1] - this.offsets[a],
+        this.offsets[b + 1] - this.offsets[b]));
+    int total = 0;
+    for (int i = 0; i < 4 * typos + 1; i++) {
+      total += this.offsets[rarest[i] + 1] - this.offsets[rarest[i]];
+    }
+    int[] candidates = new int[total];
+    int count = 0;
+    for (int i = 0; i < 4 * typos + 1; i++) {
+      System.arraycopy(this.lists, this.offsets[rarest[i]], candidates, count,
+          this.offsets[rarest[i] + 1] - this.offsets[rarest[i]]);
+      count += this.offsets[rarest[i] + 1] - this.offsets[rarest[i]];
+    }
+    Arrays.sort(candidates);
+
+    // CHECKING EVERY CANDIDATE ONCE//
+    List<int[]> matches = new ArrayList<int[]>(); // actor, typos
+    for (int i = 0; i < candidates.length; i++) {
+      if (i > 0 && candidates[i] == candidates[i - 1]) {
+        continue;
+      }
+      int key = candidates[i];
+      int distance = distance(normalized, normalize(this.graph.name(this.keys[key])), typos);
+      for (int a = this.keys[key]; distance <= typos && a < this.keys[key + 1]; a++) {
+        matches.add(new int[] { a, distance });
+      }
+    }
+    matches.sort((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1])
+        : Integer.compare(this.graph.degree(b[0]), this.graph.degree(a[0])));
+    int[] ids = new int[Math.min(k, matches.size())];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = matches.get(i)[0];
+    }
+    return ids;
+  }
+
+  /**
+   * Actors to suggest for a name that was not found: those starting with
+   * it, then those within a typo for every few letters.
+   *
+   * @param query
+   *            name as typed.
+   * @param k
+   *            most actors returned.
+   * @return actor ids, best first.
+   */
+  public int[] suggest(String query, int k) {
+    List<Integer> found = new ArrayList<Integer>();
+    for (int a : prefix(query, k)) {
+      found.add(a);
+    }
+    int typos = Math.min(MAX_TYPOS, Math.max(1, normalize(query).length() / LETTERS_PER_TYPO));
+    for (int a : fuzzy(query, k, typos)) {
+      if (found.contains(a) == false) {
+        found.add(a);
+      }
+    }
+    return ids(found, k);
+  }
+
+  /**
+   * First ids of a list.
+   *
+   * @param found
+   *            ids.
+   * @param k
+   *            most ids returned.
+   * @return the ids.
+   */
+  private static int[] ids(List<Integer> found, int k) {
+    int[] ids = new int[Math.min(k, found.size())];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = found.get(i);
+    }
+    return ids;
+  }
+
+  /**
+   * Edit distance counting two swapped letters as one typo (optimal string
+   * alignment), one row at a time, giving up once every entry of a row is
+   * over budget.
+   *
+   * @param a
+   *            first string.
+   * @param b
+   *            second string.
+   * @param budget
+   *            largest distance of interest.
+   * @return distance, or budget + 1 if it is larger than budget.
+   */
+  static int distance(String a, String b, int budget) {
+    if (Math.abs(a.length() - b.length()) > budget) {
+      return budget + 1;
+    }
+    int[] before = new int[b.length() + 1];
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int best = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int change = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(change, Math.min(previous[j], current[j - 1]) + 1);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          current[j] = Math.min(current[j], before[j - 2] + 1); // swapped letters
+        }
+        best = Math.min(best, current[j]);
+      }
+      if (best > budget) {
+        return budget + 1;
+      }
+      int[] swap = before;
+      before = previous;
+      previous = current;
+      current = swap;
+    }
+    return Math.min(previous[b.length()], budget + 1);
+  }
+
+  /**
+   * Memory held by the index.
+   *
+   * @return size in bytes.
+   */
+  public long memory() {
+    return 4L * (this.keys.length + this.offsets.length + this.lists.length);
+  }
+}
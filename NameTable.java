@@ -0,0 +1,545 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * NameTable.java Actor names and movie titles stored as front-coded UTF-8
+ * bytes in vertex id order. Actor names are sorted among themselves and so
+ * are movie titles, so neighboring names tend to share a long prefix ("Smith,
+ * John (I)", "Smith, John (II)", ...), and every name but the first of a
+ * block of BLOCK names is stored as the length of the prefix it shares with
+ * the name before it plus the rest of its bytes.
+ *
+ * A name is found with a binary search over the first names of the blocks
+ * and a scan through one block, and a name is decoded from the start of its
+ * block when it is asked for. No String is made until then.
+ *
+ * Lengths are written as varints: seven bits per byte, low bits first, with
+ * the high bit set on every byte but the last.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class NameTable {
+  /** Names per block; the first name of every block is stored whole */
+  public static final int BLOCK = 16;
+
+  /** Number of actors, whose names come first */
+  private int actorCount;
+  /** Number of names */
+  private int size;
+  /** Where every block starts in bytes, with one extra entry at the end */
+  private IntBuffer starts;
+  /** Front-coded blocks of names */
+  private ByteBuffer bytes;
+
+  /**
+   * Constructs a name table over front-coded blocks, as written by encode().
+   *
+   * @param actorCount
+   *            number of actor names (movie titles follow them).
+   * @param size
+   *            number of names.
+   * @param starts
+   *            start of every block in bytes, plus the end of the last one.
+   * @param bytes
+   *            front-coded blocks.
+   */
+  public NameTable(int actorCount, int size, IntBuffer starts, ByteBuffer bytes) {
+    this.actorCount = actorCount;
+    this.size = size;
+    this.starts = starts;
+    this.bytes = bytes;
+  }
+
+  /**
+   * Front-codes sorted names.
+   *
+   * @param actorCount
+   *            number of actor names (movie titles follow them).
+   * @param starts
+   *            start of every name in plain, plus the end of the last one.
+   * @param plain
+   *            UTF-8 bytes of the names, one after the other.
+   * @return the name table.
+   */
+  public static NameTable encode(int actorCount, int[] starts, byte[] plain) {
+    int size = starts.length - 1;
+    int[] blocks = new int[(size + BLOCK - 1) / BLOCK + 1];
+    byte[] bytes = new byte[plain.length + 2 * size + 16]; // never more than the names and two varints each
+    int at = 0;
+    for (int v = 0; v < size; v++) {
+      int start = starts[v];
+      int length = starts[v + 1] - start;
+      int shared = 0;
+      if (v % BLOCK == 0) {
+        blocks[v / BLOCK] = at;
+      } else {
+        int previous = starts[v - 1];
+        int limit = Math.min(length, start - previous);
+        while (shared < limit && plain[previous + shared] == plain[start + shared]) {
+          shared++;
+        }
+        if (bytes.length - at < 10 + length) {
+          bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        at = writeVarint(bytes, at, shared);
+      }
+      if (bytes.length - at < 10 + length) {
+        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+      }
+      at = writeVarint(bytes, at, length - shared);
+      System.arraycopy(plain, start + shared, bytes, at, length - shared);
+      at += length - shared;
+    }
+    blocks[blocks.length - 1] = at;
+    return new NameTable(actorCount, size, IntBuffer.wrap(blocks), ByteBuffer.wrap(Arrays.copyOf(bytes, at)));
+  }
+
+  /**
+   * Makes a table with more names: the old names with new actor names and
+   * new movie titles merged in where they sort.
+   *
+   * @param actors
+   *            UTF-8 bytes of the new actor names, sorted and not in the
+   *            table.
+   * @param movies
+   *            UTF-8 bytes of the new movie titles, sorted and not in the
+   *            table.
+   * @return the bigger table.
+   */
+  public NameTable with(byte[][] actors, byte[][] movies) {
+    Plain plain = new Plain(this.size + actors.length + movies.length);
+    int nextActor = 0;
+    int nextMovie = 0;
+    Cursor cursor = null;
+    for (int v = 0; v < this.size; v++) {
+      if (v % BLOCK == 0) {
+        cursor = new Cursor(v / BLOCK);
+      } else {
+        cursor.next();
+      }
+      if (v < this.actorCount) {
+        while (nextActor < actors.length && cursor.compare(actors[nextActor]) > 0) {
+          plain.add(actors[nextActor], actors[nextActor++].length);
+        }
+      } else {
+        while (nextActor < actors.length) { // new actors that sort after every old one
+          plain.add(actors[nextActor], actors[nextActor++].length);
+        }
+        while (nextMovie < movies.length && cursor.compare(movies[nextMovie]) > 0) {
+          plain.add(movies[nextMovie], movies[nextMovie++].length);
+        }
+      }
+      plain.add(cursor.name, cursor.length);
+    }
+    while (nextActor < actors.length) { // only when there are no movies
+      plain.add(actors[nextActor], actors[nextActor++].length);
+    }
+    while (nextMovie < movies.length) {
+      plain.add(movies[nextMovie], movies[nextMovie++].length);
+    }
+    return encode(this.actorCount + actors.length, plain.starts, Arrays.copyOf(plain.bytes, plain.at));
+  }
+
+  /**
+   * Names one after the other, as encode() takes them.
+   */
+  private static class Plain {
+    /** Start of every name, plus the end of the last one */
+    int[] starts;
+    /** Bytes of the names */
+    byte[] bytes = new byte[1 << 16];
+    /** Names added so far */
+    int names;
+    /** Bytes used so far */
+    int at;
+
+    /**
+     * Makes room for a number of names.
+     *
+     * @param size
+     *            number of names.
+     */
+    Plain(int size) {
+      this.starts = new int[size + 1];
+    }
+
+    /**
+     * Adds the next name.
+     *
+     * @param name
+     *            UTF-8 bytes, starting at 0.
+     * @param length
+     *            number of bytes.
+     */
+    void add(byte[] name, int length) {
+      if (this.bytes.length - this.at < length) {
+        this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.at + length));
+      }
+      System.arraycopy(name, 0, this.bytes, this.at, length);
+      this.at += length;
+      this.starts[++this.names] = this.at;
+    }
+  }
+
+  /**
+   * Number of names in the table.
+   *
+   * @return number of actors and movies.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Decodes the name of a vertex.
+   *
+   * @param v
+   *            vertex id.
+   * @return actor name or movie title.
+   */
+  public String name(int v) {
+    Cursor cursor = new Cursor(v / BLOCK);
+    while (cursor.id < v) {
+      cursor.next();
+    }
+    return new String(cursor.name, 0, cursor.length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Looks up an actor name.
+   *
+   * @param name
+   *            actor name.
+   * @return id of the actor, or -1 if there is no such actor.
+   */
+  public int actor(String name) {
+    return Math.max(-1, search(name.getBytes(StandardCharsets.UTF_8), 0, this.actorCount));
+  }
+
+  /**
+   * Looks up a movie title.
+   *
+   * @param title
+   *            movie title.
+   * @return id of the movie, or -1 if there is no such movie.
+   */
+  public int movie(String title) {
+    return Math.max(-1, search(title.getBytes(StandardCharsets.UTF_8), this.actorCount, this.size));
+  }
+
+  /**
+   * Number of actor names, or movie titles, that sort before a name. For a
+   * name in the table this is its id (less the actor count for movies), and
+   * for any other name it is where the name would go.
+   *
+   * @param name
+   *            actor name or movie title.
+   * @param actor
+   *            whether to rank it among the actors or the movies.
+   * @return rank of the name.
+   */
+  public int rank(String name, boolean actor) {
+    int low = actor ? 0 : this.actorCount;
+    int found = search(name.getBytes(StandardCharsets.UTF_8), low, actor ? this.actorCount : this.size);
+    return (found >= 0 ? found : -found - 1) - low;
+  }
+
+  /**
+   * Ids of the actor names, or movie titles, that start with a prefix
+   * (compared byte by byte, so case matters). They are next to each other
+   * because names are sorted.
+   *
+   * @param prefix
+   *            start of the names.
+   * @param actor
+   *            whether to look among the actors or the movies.
+   * @return first id and one past the last id, the same if there are none.
+   */
+  public int[] range(String prefix, boolean actor) {
+    int low = actor ? 0 : this.actorCount;
+    int high = actor ? this.actorCount : this.size;
+    byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+    byte[] past = Arrays.copyOf(key, key.length + 1);
+    past[key.length] = (byte) 0xff; // never in UTF-8, so it sorts after every name with the prefix
+    int from = search(key, low, high);
+    int to = search(past, low, high);
+    return new int[] { from >= 0 ? from : -from - 1, -to - 1 };
+  }
+
+  /**
+   * Hears about names one at a time.
+   */
+  public interface Visitor {
+    /**
+     * Called for every name.
+     *
+     * @param id
+     *            vertex id.
+     * @param name
+     *            UTF-8 bytes of the name, starting at 0; only valid during
+     *            the call.
+     * @param length
+     *            number of bytes.
+     */
+    void name(int id, byte[] name, int length);
+  }
+
+  /**
+   * Decodes a range of names in order, each one from the one before it, which
+   * is much faster than asking for them one by one.
+   *
+   * @param from
+   *            first id.
+   * @param to
+   *            one past the last id.
+   * @param visitor
+   *            told about every name.
+   */
+  public void visit(int from, int to, Visitor visitor) {
+    Cursor cursor = null;
+    for (int v = from; v < to; v++) {
+      if (cursor == null || v % BLOCK == 0) {
+        cursor = new Cursor(v / BLOCK);
+        while (cursor.id < v) {
+          cursor.next();
+        }
+      } else {
+        cursor.next();
+      }
+      visitor.name(v, cursor.name, cursor.length);
+    }
+  }
+
+  /**
+   * Finds a name between two ids: a binary search for the last block that
+   * starts at or before the key, then a scan through that block.
+   *
+   * @param key
+   *            UTF-8 bytes of the name.
+   * @param low
+   *            first id to look at.
+   * @param high
+   *            one past the last id to look at.
+   * @return id of the name, or -(where it would go) - 1 if it is not there.
+   */
+  private int search(byte[] key, int low, int high) {
+    if (low >= high) {
+      return -low - 1;
+    }
+    int first = low / BLOCK; // may start with a name from before low, so it is never compared
+    int lo = first + 1;
+    int hi = (high - 1) / BLOCK + 1;
+    while (lo < hi) { // find the first block whose first name is past the key
+      int middle = (lo + hi) >>> 1;
+      if (compareHead(middle, key) <= 0) {
+        lo = middle + 1;
+      } else {
+        hi = middle;
+      }
+    }
+    Cursor cursor = new Cursor(lo - 1);
+    int end = Math.min(high, (lo - 1) * BLOCK + BLOCK);
+    while (true) {
+      if (cursor.id >= low) {
+        int cmp = cursor.compare(key);
+        if (cmp == 0) {
+          return cursor.id;
+        } else if (cmp > 0) {
+          return -cursor.id - 1;
+        }
+      }
+      if (cursor.id + 1 >= end) {
+        return -end - 1;
+      }
+      cursor.next();
+    }
+  }
+
+  /**
+   * Compares the first name of a block to a key byte by byte (unsigned),
+   * which is the order the names were sorted in.
+   *
+   * @param block
+   *            block number.
+   * @param key
+   *            UTF-8 bytes of the name being looked for.
+   * @return negative, zero or positive like compareTo.
+   */
+  private int compareHead(int block, byte[] key) {
+    int at = this.starts.get(block);
+    int length = 0;
+    for (int shift = 0;; shift += 7) {
+      byte b = this.bytes.get(at++);
+      length |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        break;
+      }
+    }
+    int common = Math.min(length, key.length);
+    for (int i = 0; i < common; i++) {
+      int cmp = (this.bytes.get(at + i) & 0xff) - (key[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return length - key.length;
+  }
+
+  /**
+   * Walks through the names of a block one at a time.
+   */
+  private class Cursor {
+    /** Id of the current name */
+    int id;
+    /** Bytes of the current name, in front of whatever is left of longer ones */
+    byte[] name = new byte[64];
+    /** Length of the current name */
+    int length;
+    /** Position of the next name in bytes */
+    int at;
+
+    /**
+     * Decodes the first name of a block.
+     *
+     * @param block
+     *            block number.
+     */
+    Cursor(int block) {
+      this.id = block * BLOCK;
+      this.at = NameTable.this.starts.get(block);
+      this.length = 0;
+      read();
+    }
+
+    /**
+     * Decodes the next name of the block.
+     */
+    void next() {
+      this.id++;
+      this.length = readVarint();
+      read();
+    }
+
+    /**
+     * Appends the rest of the current name after its shared prefix.
+     */
+    private void read() {
+      int rest = readVarint();
+      if (this.length + rest > this.name.length) {
+        this.name = Arrays.copyOf(this.name, Math.max(this.name.length * 2, this.length + rest));
+      }
+      NameTable.this.bytes.get(this.at, this.name, this.length, rest);
+      this.length += rest;
+      this.at += rest;
+    }
+
+    /**
+     * Reads a varint at the current position.
+     *
+     * @return value.
+     */
+    private int readVarint() {
+      int value = 0;
+      for (int shift = 0;; shift += 7) {
+        byte b = NameTable.this.bytes.get(this.at++);
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    /**
+     * Compares the current name to a key byte by byte (unsigned).
+     *
+     * @param key
+     *            UTF-8 bytes of the name being looked for.
+     * @return negative, zero or positive like compareTo.
+     */
+    int compare(byte[] key) {
+      int common = Math.min(this.length, key.length);
+      for (int i = 0; i < common; i++) {
+        int cmp = (this.name[i] & 0xff) - (key[i] & 0xff);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return this.length - key.length;
+    }
+  }
+
+  /**
+   * Writes a varint.
+   *
+   * @param bytes
+   *            where to write it.
+   * @param at
+   *            position to write at.
+   * @param value
+   *            non-negative value.
+   * @return position after the varint.
+   */
+  private static int writeVarint(byte[] bytes, int at, int value) {
+    while (value >= 0x80) {
+      bytes[at++] = (byte) (value | 0x80);
+      value >>>= 7;
+    }
+    bytes[at++] = (byte) value;
+    return at;
+  }
+
+  /**
+   * Memory held by the table.
+   *
+   * @return size in bytes.
+   */
+  public long memory() {
+    return 4L * this.starts.limit() + this.bytes.limit();
+  }
+
+  /**
+   * Compares the table with keeping the same names as plain UTF-8 with an
+   * int start each, and as a String per name in a HashMap, the way the game
+   * used to keep them.
+   *
+   * @return one line memory report.
+   */
+  public String report() {
+    long plain = 4L * (this.size + 1);
+    long strings = 0;
+    Cursor cursor = null;
+    for (int v = 0; v < this.size; v++) {
+      if (v % BLOCK == 0) {
+        cursor = new Cursor(v / BLOCK);
+      } else {
+        cursor.next();
+      }
+      plain += cursor.length;
+      // String 24 + byte[] 16 + chars padded to 8, HashMap node 32 and table slot 8
+      strings += 24 + ((16 + cursor.length + 7) & ~7) + 32 + 8;
+    }
+    return this.size + " names in " + (memory() >> 10) + " KB front-coded, " + (plain >> 10)
+        + " KB as plain UTF-8, about " + (strings >> 10) + " KB as Strings in a HashMap";
+  }
+
+  /**
+   * Start of every block in bytes(), with one extra entry at the end.
+   *
+   * @return block starts.
+   */
+  public IntBuffer starts() {
+    return this.starts.duplicate();
+  }
+
+  /**
+   * Front-coded blocks of names.
+   *
+   * @return name bytes.
+   */
+  public ByteBuffer bytes() {
+    return this.bytes.duplicate();
+  }
+}
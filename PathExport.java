@@ -0,0 +1,144 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * PathExport.java Writes every actor's path to the center and Bacon number,
+ * the same lines findall() prints, to a stream or file. All of them come out
+ * of one CenterTree, so no actor needs a search of its own. Actors are cut
+ * into chunks whose lines are built on every core, and the chunks are
+ * written in order; only a few chunks are ever in flight, so memory stays
+ * the same whatever the size of the database.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class PathExport {
+  /** Actors per chunk */
+  private static final int CHUNK = 4096;
+  /** Output buffer size */
+  private static final int BUFFER = 1 << 20;
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Tree of the center */
+  private CenterTree tree;
+  /** Number of threads building lines */
+  private int threads;
+
+  /**
+   * Prepares an export.
+   *
+   * @param graph
+   *            actors and movies.
+   * @param tree
+   *            tree of the center.
+   * @param threads
+   *            number of threads building lines.
+   */
+  public PathExport(Graph graph, CenterTree tree, int threads) {
+    this.graph = graph;
+    this.tree = tree;
+    this.threads = threads;
+  }
+
+  /**
+   * Writes every actor to a file, gzipped if its name ends in .gz.
+   *
+   * @param file
+   *            file to write.
+   * @return number of actors written.
+   * @throws IOException
+   */
+  public long write(Path file) throws IOException {
+    try (OutputStream out = Files.newOutputStream(file);
+        OutputStream packed = file.toString().endsWith(".gz") ? new GZIPOutputStream(out, BUFFER) : out;
+        OutputStream buffered = new BufferedOutputStream(packed, BUFFER)) {
+      return write(buffered, "\n");
+    }
+  }
+
+  /**
+   * Writes every actor to a stream, leaving it open.
+   *
+   * @param out
+   *            stream to write to.
+   * @param end
+   *            what ends every line.
+   * @return number of actors written.
+   * @throws IOException
+   */
+  public long write(OutputStream out, String end) throws IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+    ArrayDeque<Future<byte[]>> chunks = new ArrayDeque<Future<byte[]>>(); // in flight, oldest first
+    Metrics.Trace trace = Metrics.current();
+    try {
+      for (int from = 0; from < this.graph.actorCount(); from += CHUNK) {
+        int chunkStart = from;
+        int chunkEnd = Math.min(this.graph.actorCount(), from + CHUNK);
+        chunks.add(pool.submit(() -> {
+          Metrics.Trace before = Metrics.adopt(trace);
+          try {
+            return lines(chunkStart, chunkEnd, end);
+          } finally {
+            Metrics.adopt(before);
+          }
+        }));
+        if (chunks.size() >= 2 * this.threads) { // wait for the oldest before building more
+          out.write(chunks.poll().get());
+        }
+      }
+      while (chunks.isEmpty() == false) {
+        out.write(chunks.poll().get());
+      }
+      out.flush();
+      return this.graph.actorCount();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing paths", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Could not write paths", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Lines of a range of actors.
+   *
+   * @param from
+   *            first actor.
+   * @param to
+   *            one past the last actor.
+   * @param end
+   *            what ends every line.
+   * @return the lines in UTF-8.
+   */
+  private byte[] lines(int from, int to, String end) {
+    StringBuilder sb = new StringBuilder((to - from) * 96);
+    for (int actor = from; actor < to; actor++) {
+      String name = this.graph.name(actor);
+      sb.append(name).append(": ");
+      int distance = this.tree.distance(actor);
+      if (distance == -1) {
+        sb.append(name).append(" has a Bacon Number of infinity");
+      } else {
+        for (int step = actor; this.tree.parent(step) != -1; step = this.tree.parent(step)) {
+          sb.append(this.graph.name(step)).append(" --> ");
+        }
+        sb.append(this.tree.center());
+      }
+      sb.append(" (").append(distance == -1 ? -1 : distance / 2).append(')').append(end);
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ * SearchState.java Scratch space for one breadth first search, kept outside
+ * the graph so any number of threads can search the same graph at once. A
+ * vertex counts as visited only if its stamp equals the current generation,
+ * so starting a new search is one increment instead of clearing every vertex,
+ * and a search costs only the vertices it touches. Each thread reuses its own
+ * state through acquire().
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class SearchState {
+  /** Number of states each thread can hold at once, one per side of a bidirectional search */
+  public static final int SIDES = 2;
+  /** Reusable states of each thread */
+  private static final ThreadLocal<SearchState[]> POOL = ThreadLocal.withInitial(() -> {
+    SearchState[] sides = new SearchState[SIDES];
+    for (int i = 0; i < SIDES; i++) {
+      sides[i] = new SearchState();
+    }
+    return sides;
+  });
+
+  /** Generation in which each vertex was last visited */
+  private int[] stamps = new int[0];
+  /** Distance of each visited vertex from where the search started */
+  private int[] distance = new int[0];
+  /** Vertex each visited vertex was reached from, -1 for the start */
+  private int[] parent = new int[0];
+  /** Queue of vertices waiting to be expanded */
+  private int[] queue = new int[0];
+  /** Current generation, never 0 once a search has started */
+  private int generation;
+
+  /**
+   * Returns this thread's state, cleared and big enough for the graph.
+   *
+   * @param vertexCount
+   *            number of vertices in the graph being searched.
+   * @return state ready for a new search.
+   */
+  public static SearchState acquire(int vertexCount) {
+    return acquire(vertexCount, 0);
+  }
+
+  /**
+   * Returns one of this thread's states, cleared and big enough for the
+   * graph. Different sides can be used at the same time.
+   *
+   * @param vertexCount
+   *            number of vertices in the graph being searched.
+   * @param side
+   *            which state, 0 up to SIDES.
+   * @return state ready for a new search.
+   */
+  public static SearchState acquire(int vertexCount, int side) {
+    SearchState state = POOL.get()[side];
+    state.ensure(vertexCount);
+    state.clear();
+    return state;
+  }
+
+  /**
+   * Grows the arrays to hold every vertex.
+   *
+   * @param vertexCount
+   *            number of vertices.
+   */
+  private void ensure(int vertexCount) {
+    if (this.stamps.length < vertexCount) {
+      this.stamps = new int[vertexCount];
+      this.distance = new int[vertexCount];
+      this.parent = new int[vertexCount];
+      this.queue = new int[vertexCount];
+      this.generation = 0;
+    }
+  }
+
+  /**
+   * Forgets every visit by moving to the next generation. Only when the
+   * generation wraps around are the stamps really cleared.
+   */
+  public void clear() {
+    this.generation++;
+    if (this.generation == 0) {
+      Arrays.fill(this.stamps, 0);
+      this.generation = 1;
+    }
+  }
+
+  /**
+   * Marks a vertex as visited if it has not been yet.
+   *
+   * @param v
+   *            vertex id.
+   * @param distance
+   *            distance of v from the start.
+   * @param parent
+   *            vertex v was reached from, -1 for the start.
+   * @return true if v was not visited before.
+   */
+  public boolean visit(int v, int distance, int parent) {
+    if (this.stamps[v] == this.generation) {
+      return false;
+    }
+    this.stamps[v] = this.generation;
+    this.distance[v] = distance;
+    this.parent[v] = parent;
+    return true;
+  }
+
+  /**
+   * Whether a vertex has been visited in this search.
+   *
+   * @param v
+   *            vertex id.
+   * @return true if visited.
+   */
+  public boolean visited(int v) {
+    return this.stamps[v] == this.generation;
+  }
+
+  /**
+   * Distance of a visited vertex from the start.
+   *
+   * @param v
+   *            vertex id.
+   * @return distance, or -1 if v was not visited.
+   */
+  public int distance(int v) {
+    return visited(v) ? this.distance[v] : -1;
+  }
+
+  /**
+   * Vertex a visited vertex was reached from.
+   *
+   * @param v
+   *            vertex id.
+   * @return parent, or -1 for the start and unvisited vertices.
+   */
+  public int parent(int v) {
+    return visited(v) ? this.parent[v] : -1;
+  }
+
+  /**
+   * Queue space with room for every vertex.
+   *
+   * @return queue array.
+   */
+  public int[] queue() {
+    return this.queue;
+  }
+}
@@ -0,0 +1,381 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ShardCoordinator.java Searches a graph split between several worker
+ * processes, for databases that do not fit in one heap. It starts one
+ * ShardWorker JVM per shard on this machine, each holding only its part of
+ * the graph, and keeps only the names itself (mapped from the snapshot, whose
+ * adjacency it never reads).
+ *
+ * A search runs one level at a time. Every step sends each worker the
+ * vertices of the level that it owns, all of them at once, and collects the
+ * next level from every worker, already split by owner, so a level costs one
+ * round trip however many vertices it has. Workers are sent their level
+ * before any reply is read, so they all work at the same time.
+ *
+ * The workers remember the distances of the last search, so the Bacon
+ * number and path of every actor the search has reached, the table and the
+ * average are answered without searching again. A search that was stopped
+ * once the actor asked for was reached goes on from where it stopped.
+ * Parents are found like CenterTree.parent(), as the first neighbor one step
+ * closer, so paths are the same as the single process game's.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class ShardCoordinator implements AutoCloseable {
+  /** Names of the actors and movies, and their connected components */
+  private Graph graph;
+  /** Worker processes */
+  private List<Process> processes = new ArrayList<Process>();
+  /** Messages to every shard */
+  private DataOutputStream[] out;
+  /** Replies of every shard */
+  private DataInputStream[] in;
+  /** Memory held by every shard, in bytes */
+  private long[] memory;
+  /** Source of the search the workers hold, -1 if none */
+  private int source = -1;
+  /** Distance of the next level to visit */
+  private int hops;
+  /** Vertices of the next level, by the shard that owns them */
+  private int[][] pending;
+  /** Number of actors at every Bacon number reached so far */
+  private long[] counts = new long[16];
+  /** Whether the search has reached everybody it can */
+  private boolean done;
+
+  /**
+   * Starts a worker JVM for every shard of a snapshot and waits until they
+   * have all loaded their part.
+   *
+   * @param graph
+   *            the snapshot's graph, mapped; only its names and components
+   *            are read.
+   * @param snapshot
+   *            snapshot file the workers load their shards from.
+   * @param shards
+   *            number of workers.
+   * @param options
+   *            JVM options of every worker, such as -Xmx.
+   * @throws IOException
+   *             if a worker could not be started or did not connect.
+   */
+  public ShardCoordinator(Graph graph, Path snapshot, int shards, List<String> options) throws IOException {
+    this.graph = graph;
+    this.out = new DataOutputStream[shards];
+    this.in = new DataInputStream[shards];
+    this.memory = new long[shards];
+    try (ServerSocket server = new ServerSocket(0, shards, InetAddress.getLoopbackAddress())) {
+      String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      for (int s = 0; s < shards; s++) {
+        List<String> command = new ArrayList<String>();
+        command.add(java);
+        command.addAll(options);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), "ShardWorker", snapshot.toString(),
+            Integer.toString(s), Integer.toString(shards), Integer.toString(server.getLocalPort())));
+        this.processes.add(new ProcessBuilder(command).inheritIO().start());
+      }
+      server.setSoTimeout(1000);
+      for (int connected = 0; connected < shards; connected++) {
+        Socket socket = accept(server);
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        int s = in.readInt();
+        this.in[s] = in;
+        this.out[s] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        in.readInt(); // vertices owned
+        this.memory[s] = in.readLong();
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for the next worker to connect, as long as none has died.
+   *
+   * @param server
+   *            socket the workers connect to, with a timeout.
+   * @return connection to a worker.
+   * @throws IOException
+   *             if a worker exited before connecting.
+   */
+  private Socket accept(ServerSocket server) throws IOException {
+    while (true) {
+      try {
+        return server.accept();
+      } catch (SocketTimeoutException e) { // still loading, unless one of them failed
+        for (int s = 0; s < this.processes.size(); s++) {
+          if (this.processes.get(s).isAlive() == false) {
+            throw new IOException("Shard " + s + " exited with " + this.processes.get(s).exitValue());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Number of shards.
+   *
+   * @return shard count.
+   */
+  public int shards() {
+    return this.out.length;
+  }
+
+  /**
+   * Memory held by one shard.
+   *
+   * @param shard
+   *            shard number.
+   * @return size in bytes.
+   */
+  public long memory(int shard) {
+    return this.memory[shard];
+  }
+
+  /**
+   * Makes the workers' search start at a source, unless it already does.
+   *
+   * @param source
+   *            actor id.
+   * @throws IOException
+   */
+  private void start(int source) throws IOException {
+    if (source == this.source) {
+      return;
+    }
+    for (DataOutputStream out : this.out) {
+      out.writeInt(ShardWorker.RESET);
+    }
+    this.source = source;
+    this.hops = 0;
+    this.done = false;
+    Arrays.fill(this.counts, 0);
+    this.pending = new int[shards()][0];
+    this.pending[ShardWorker.owner(source, shards())] = new int[] { source };
+  }
+
+  /**
+   * Visits one level on every shard and gathers the next one.
+   *
+   * @throws IOException
+   */
+  private void step() throws IOException {
+    int shards = shards();
+    for (int s = 0; s < shards; s++) {
+      this.out[s].writeInt(ShardWorker.STEP);
+      this.out[s].writeInt(this.hops);
+      ShardWorker.writeInts(this.out[s], this.pending[s], this.pending[s].length);
+      this.out[s].flush();
+    }
+    long visited = 0;
+    long actors = 0;
+    long scanned = 0;
+    int[][][] parts = new int[shards][][]; // next level from every shard, by owner
+    for (int s = 0; s < shards; s++) {
+      visited += this.in[s].readInt();
+      actors += this.in[s].readInt();
+      scanned += this.in[s].readLong();
+      parts[s] = new int[shards][];
+      for (int t = 0; t < shards; t++) {
+        parts[s][t] = ShardWorker.readInts(this.in[s]);
+      }
+    }
+    Metrics.searched(visited, scanned);
+    Metrics.level(this.hops, visited);
+    if (this.hops / 2 >= this.counts.length) {
+      this.counts = Arrays.copyOf(this.counts, 2 * this.counts.length);
+    }
+    this.counts[this.hops / 2] += actors;
+
+    boolean empty = true;
+    for (int t = 0; t < shards; t++) {
+      int length = 0;
+      for (int s = 0; s < shards; s++) {
+        length += parts[s][t].length;
+      }
+      int[] level = new int[length];
+      length = 0;
+      for (int s = 0; s < shards; s++) {
+        System.arraycopy(parts[s][t], 0, level, length, parts[s][t].length);
+        length += parts[s][t].length;
+      }
+      this.pending[t] = level;
+      empty &= length == 0;
+    }
+    this.hops++;
+    this.done = empty;
+  }
+
+  /**
+   * Distances of some vertices from the source of the workers' search, as
+   * far as it has gone.
+   *
+   * @param vertices
+   *            vertex ids.
+   * @return distance of every vertex, -1 if not reached yet.
+   * @throws IOException
+   */
+  private int[] distances(int[] vertices) throws IOException {
+    int shards = shards();
+    int[][] asked = new int[shards][vertices.length];
+    int[] sizes = new int[shards];
+    for (int v : vertices) {
+      int s = ShardWorker.owner(v, shards);
+      asked[s][sizes[s]++] = v;
+    }
+    for (int s = 0; s < shards; s++) {
+      if (sizes[s] > 0) {
+        this.out[s].writeInt(ShardWorker.DISTANCES);
+        ShardWorker.writeInts(this.out[s], asked[s], sizes[s]);
+        this.out[s].flush();
+      }
+    }
+    int[][] answers = new int[shards][];
+    for (int s = 0; s < shards; s++) {
+      answers[s] = sizes[s] > 0 ? ShardWorker.readInts(this.in[s]) : null;
+    }
+    int[] distance = new int[vertices.length];
+    Arrays.fill(sizes, 0);
+    for (int i = 0; i < vertices.length; i++) { // answers come back in the order they were asked
+      int s = ShardWorker.owner(vertices[i], shards);
+      distance[i] = answers[s][sizes[s]++];
+    }
+    return distance;
+  }
+
+  /**
+   * Distance of a vertex from a source, searching only until it is reached.
+   *
+   * @param source
+   *            actor id.
+   * @param target
+   *            vertex id.
+   * @return distance in hops (movies count as a step), -1 if not connected.
+   */
+  public synchronized int distance(int source, int target) {
+    try {
+      start(source);
+      int distance = distances(new int[] { target })[0];
+      while (distance == -1 && this.done == false) {
+        step();
+        distance = distances(new int[] { target })[0];
+      }
+      return distance;
+    } catch (IOException e) {
+      throw new IllegalStateException("Lost touch with a shard worker", e);
+    }
+  }
+
+  /**
+   * Shortest path from a vertex to a source: at every step, the first
+   * neighbor that is one step closer.
+   *
+   * @param source
+   *            actor id.
+   * @param from
+   *            vertex id.
+   * @return vertices from "from" to the source, or null if not connected.
+   */
+  public synchronized int[] path(int source, int from) {
+    int distance = distance(source, from);
+    if (distance == -1) {
+      return null;
+    }
+    int[] path = new int[distance + 1];
+    path[0] = from;
+    try {
+      for (int i = 1; i <= distance; i++) {
+        int s = ShardWorker.owner(path[i - 1], shards());
+        this.out[s].writeInt(ShardWorker.NEIGHBORS);
+        this.out[s].writeInt(path[i - 1]);
+        this.out[s].flush();
+        int[] neighbors = ShardWorker.readInts(this.in[s]);
+        int[] distances = distances(neighbors);
+        int k = 0;
+        while (distances[k] != distance - i) {
+          k++;
+        }
+        path[i] = neighbors[k];
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Lost touch with a shard worker", e);
+    }
+    return path;
+  }
+
+  /**
+   * Number of actors at every Bacon number from a source, searching all of
+   * its component.
+   *
+   * @param source
+   *            actor id.
+   * @return actors at Bacon number 0 up to the largest.
+   */
+  public synchronized long[] table(int source) {
+    try {
+      start(source);
+      while (this.done == false) {
+        step();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Lost touch with a shard worker", e);
+    }
+    int max = 0;
+    for (int b = 0; b < this.counts.length; b++) {
+      if (this.counts[b] > 0) {
+        max = b;
+      }
+    }
+    return Arrays.copyOf(this.counts, max + 1);
+  }
+
+  /**
+   * Tells every worker to quit and waits for them to exit.
+   */
+  public synchronized void close() {
+    for (DataOutputStream out : this.out) {
+      try {
+        if (out != null) {
+          out.writeInt(ShardWorker.QUIT);
+          out.close();
+        }
+      } catch (IOException e) {
+        // the worker is gone already
+      }
+    }
+    for (Process process : this.processes) {
+      try {
+        process.waitFor();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        process.destroy();
+      }
+    }
+  }
+
+  /**
+   * The names and components the coordinator answers with.
+   *
+   * @return graph mapped from the snapshot.
+   */
+  public Graph graph() {
+    return this.graph;
+  }
+}
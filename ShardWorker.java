@@ -0,0 +1,301 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * ShardWorker.java One shard of a graph that is too big for one process. The
+ * actors and movies are split between the shards by a hash of their id, and a
+ * worker keeps only the neighbors of the vertices it owns, still under their
+ * global ids, and their distance from the source of the current search, so
+ * every worker needs about 1/shards of the memory of the whole graph.
+ *
+ * A worker is started by a ShardCoordinator, connects back to it and then
+ * answers its messages until told to quit. The coordinator runs the search
+ * one level at a time: it hands every worker the vertices of the next level
+ * that it owns, and the worker keeps those it has not seen yet and returns
+ * their neighbors, sorted, without repeats and split by the shard that owns
+ * them, for the coordinator to pass on in the next step.
+ *
+ * Messages are ints in network byte order, and int arrays are sent as their
+ * length followed by the ints.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class ShardWorker {
+  /** Forget the last search */
+  static final int RESET = 1;
+  /** Visit one level and return its neighbors */
+  static final int STEP = 2;
+  /** Distance of some vertices from the source */
+  static final int DISTANCES = 3;
+  /** Neighbors of one vertex */
+  static final int NEIGHBORS = 4;
+  /** Stop the worker */
+  static final int QUIT = 5;
+
+  /** Number of this shard */
+  private int shard;
+  /** Number of shards */
+  private int shards;
+  /** Number of actors in the whole graph, whose ids are 0 up to actorCount */
+  private int actorCount;
+  /** Vertices owned by this shard, sorted */
+  private int[] owned;
+  /** Where the neighbors of each owned vertex start in adjacency, with one extra entry at the end */
+  private int[] offsets;
+  /** Global ids of the neighbors of every owned vertex, one after the other */
+  private int[] adjacency;
+  /** Distance of every owned vertex from the source, -1 if not reached yet */
+  private int[] distance;
+
+  /**
+   * Shard that owns a vertex. Ids are sorted by name, so they are hashed
+   * first to spread the actors with the most credits over every shard.
+   *
+   * @param v
+   *            vertex id.
+   * @param shards
+   *            number of shards.
+   * @return shard number.
+   */
+  static int owner(int v, int shards) {
+    int h = v * 0x9E3779B9;
+    return Integer.remainderUnsigned(h ^ (h >>> 16), shards);
+  }
+
+  /**
+   * Copies the vertices of one shard out of a graph.
+   *
+   * @param graph
+   *            the whole graph, usually mapped from a snapshot so only the
+   *            copied part ends up on the heap.
+   * @param shard
+   *            number of this shard.
+   * @param shards
+   *            number of shards.
+   */
+  public ShardWorker(Graph graph, int shard, int shards) {
+    this.shard = shard;
+    this.shards = shards;
+    this.actorCount = graph.actorCount();
+    int count = 0;
+    long edges = 0;
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      if (owner(v, shards) == shard) {
+        count++;
+        edges += graph.degree(v);
+      }
+    }
+    if (edges > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Shard " + shard + " has " + edges + " neighbors, use more shards");
+    }
+    this.owned = new int[count];
+    this.offsets = new int[count + 1];
+    this.adjacency = new int[(int) edges];
+    IntBuffer offsets = graph.offsets();
+    IntBuffer adjacency = graph.adjacency();
+    int next = 0;
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      if (owner(v, shards) == shard) {
+        this.owned[next] = v;
+        this.offsets[next + 1] = this.offsets[next] + graph.degree(v);
+        next++;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      for (int e = offsets.get(this.owned[i]), k = this.offsets[i]; k < this.offsets[i + 1]; e++, k++) {
+        this.adjacency[k] = adjacency.get(e);
+      }
+    }
+    this.distance = new int[count];
+    Arrays.fill(this.distance, -1);
+  }
+
+  /**
+   * Position of a vertex among the owned ones.
+   *
+   * @param v
+   *            vertex id owned by this shard.
+   * @return local index.
+   */
+  private int local(int v) {
+    return Arrays.binarySearch(this.owned, v);
+  }
+
+  /**
+   * Visits the vertices of one level that have not been reached yet and
+   * collects their neighbors for the next level.
+   *
+   * @param hops
+   *            distance of the level from the source.
+   * @param level
+   *            vertices of the level owned by this shard, possibly repeated
+   *            or already reached.
+   * @param out
+   *            reply: vertices and actors visited, edges scanned, then the
+   *            next level split by shard.
+   * @throws IOException
+   */
+  private void step(int hops, int[] level, DataOutputStream out) throws IOException {
+    int[] visited = new int[level.length];
+    int count = 0;
+    int actors = 0;
+    for (int v : level) {
+      int i = local(v);
+      if (this.distance[i] == -1) {
+        this.distance[i] = hops;
+        visited[count++] = i;
+        if (v < this.actorCount) {
+          actors++;
+        }
+      }
+    }
+
+    int[][] next = new int[this.shards][16];
+    int[] sizes = new int[this.shards];
+    long scanned = 0;
+    for (int k = 0; k < count; k++) {
+      int i = visited[k];
+      scanned += this.offsets[i + 1] - this.offsets[i];
+      for (int e = this.offsets[i]; e < this.offsets[i + 1]; e++) {
+        int w = this.adjacency[e];
+        int s = owner(w, this.shards);
+        if (s == this.shard && this.distance[local(w)] != -1) { // no need to send what is known here
+          continue;
+        }
+        if (sizes[s] == next[s].length) {
+          next[s] = Arrays.copyOf(next[s], 2 * sizes[s]);
+        }
+        next[s][sizes[s]++] = w;
+      }
+    }
+    out.writeInt(count);
+    out.writeInt(actors);
+    out.writeLong(scanned);
+    for (int s = 0; s < this.shards; s++) {
+      Arrays.sort(next[s], 0, sizes[s]);
+      int distinct = 0;
+      for (int j = 0; j < sizes[s]; j++) {
+        if (j == 0 || next[s][j] != next[s][j - 1]) {
+          next[s][distinct++] = next[s][j];
+        }
+      }
+      writeInts(out, next[s], distinct);
+    }
+  }
+
+  /**
+   * Answers the coordinator's messages until it says to quit or hangs up.
+   *
+   * @param in
+   *            messages from the coordinator.
+   * @param out
+   *            replies.
+   * @throws IOException
+   */
+  public void serve(DataInputStream in, DataOutputStream out) throws IOException {
+    out.writeInt(this.shard);
+    out.writeInt(this.owned.length);
+    out.writeLong(memory());
+    out.flush();
+    while (true) {
+      int message = in.readInt();
+      if (message == RESET) {
+        Arrays.fill(this.distance, -1);
+      } else if (message == STEP) {
+        int hops = in.readInt();
+        step(hops, readInts(in), out);
+        out.flush();
+      } else if (message == DISTANCES) {
+        int[] vertices = readInts(in);
+        for (int i = 0; i < vertices.length; i++) {
+          vertices[i] = this.distance[local(vertices[i])];
+        }
+        writeInts(out, vertices, vertices.length);
+        out.flush();
+      } else if (message == NEIGHBORS) {
+        int i = local(in.readInt());
+        writeInts(out, Arrays.copyOfRange(this.adjacency, this.offsets[i], this.offsets[i + 1]),
+            this.offsets[i + 1] - this.offsets[i]);
+        out.flush();
+      } else if (message == QUIT) {
+        return;
+      } else {
+        throw new IOException("Unknown message " + message);
+      }
+    }
+  }
+
+  /**
+   * Memory held by the shard.
+   *
+   * @return size in bytes.
+   */
+  public long memory() {
+    return 4L * (this.owned.length + this.offsets.length + this.adjacency.length + this.distance.length);
+  }
+
+  /**
+   * Writes an int array as its length and then the ints.
+   *
+   * @param out
+   *            stream to write to.
+   * @param ints
+   *            ints to write.
+   * @param length
+   *            number of them, from the start of the array.
+   * @throws IOException
+   */
+  static void writeInts(DataOutputStream out, int[] ints, int length) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(4 * length); // big endian, like DataOutputStream
+    bytes.asIntBuffer().put(ints, 0, length);
+    out.writeInt(length);
+    out.write(bytes.array());
+  }
+
+  /**
+   * Reads an int array written by writeInts().
+   *
+   * @param in
+   *            stream to read from.
+   * @return the ints.
+   * @throws IOException
+   */
+  static int[] readInts(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[4 * in.readInt()];
+    in.readFully(bytes);
+    int[] ints = new int[bytes.length / 4];
+    ByteBuffer.wrap(bytes).asIntBuffer().get(ints);
+    return ints;
+  }
+
+  /**
+   * Runs one worker, started by a ShardCoordinator as
+   * java ShardWorker snapshot shard shards port.
+   *
+   * @param args
+   *            snapshot file, number of this shard, number of shards and
+   *            the coordinator's port on this machine.
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    int shard = Integer.parseInt(args[1]);
+    ShardWorker worker = new ShardWorker(GraphSnapshot.open(Paths.get(args[0])), shard,
+        Integer.parseInt(args[2]));
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[3]))) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+      worker.serve(in, out);
+    }
+  }
+}
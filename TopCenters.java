@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TopCenters.java Finds the n actors with the smallest average Bacon number
+ * over the actors they can reach, exactly, on every core. Every actor is tried
+ * as a center with its own direction-optimizing BitsetBfs, but a search is abandoned as
+ * soon as it can no longer beat the current n-th best: after each level the
+ * actors not reached yet are at least one level further out, which gives a
+ * lower bound on the average. Actors with the most credits are tried first so
+ * that good centers are found early and the bound cuts off the rest quickly.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class TopCenters {
+  /** Candidates handed to one task before it splits no further */
+  private static final int LEAF = 64;
+
+  /** Actors and movies */
+  private Graph graph;
+  /** Connected components, to know how many actors each center can reach */
+  private Components components;
+  /** The n best centers so far, worst on top */
+  private PriorityQueue<Result> best;
+  /** Number of centers wanted */
+  private int n;
+  /** The n-th best result once n have been found, null before that */
+  private volatile Result worst;
+  /** Candidates finished, searched or abandoned */
+  private AtomicLong done = new AtomicLong();
+  /** Candidates abandoned early */
+  private AtomicLong pruned = new AtomicLong();
+  /** One search kernel per thread, reused for every candidate */
+  private ThreadLocal<BitsetBfs> kernels;
+  /** Trace of the caller, which the worker threads add their searches to */
+  private Metrics.Trace trace;
+
+  /**
+   * Average distance of one center.
+   */
+  public static class Result implements Comparable<Result> {
+    /** Id of the center */
+    public final int actor;
+    /** Name of the center */
+    public final String name;
+    /** Sum of the Bacon numbers of every reachable actor */
+    public final long total;
+    /** Number of reachable actors, the center included */
+    public final long reach;
+
+    /**
+     * Constructs a result.
+     *
+     * @param actor
+     *            id of the center.
+     * @param name
+     *            name of the center.
+     * @param total
+     *            sum of Bacon numbers.
+     * @param reach
+     *            reachable actors.
+     */
+    public Result(int actor, String name, long total, long reach) {
+      this.actor = actor;
+      this.name = name;
+      this.total = total;
+      this.reach = reach;
+    }
+
+    /**
+     * Average Bacon number, the same as avgdist() with this center.
+     *
+     * @return average distance.
+     */
+    public double average() {
+      return (double) this.total / this.reach;
+    }
+
+    /**
+     * Smaller average first, then by name. Averages are compared as exact
+     * fractions so equal averages really tie.
+     */
+    public int compareTo(Result other) {
+      int cmp = Long.compare(this.total * other.reach, other.total * this.reach);
+      return cmp != 0 ? cmp : Integer.compare(this.actor, other.actor);
+    }
+
+    public String toString() {
+      return average() + "\t" + this.name;
+    }
+  }
+
+  /**
+   * Prepares a search for the best centers of a graph.
+   *
+   * @param graph
+   *            actors and movies.
+   */
+  public TopCenters(Graph graph) {
+    this.graph = graph;
+    this.components = graph.components();
+    this.kernels = ThreadLocal.withInitial(() -> new BitsetBfs(graph, false));
+  }
+
+  /**
+   * Finds the n best centers, printing progress every few seconds.
+   *
+   * @param n
+   *            number of centers.
+   * @param threads
+   *            number of threads to search with.
+   * @return best centers, best first.
+   */
+  public List<Result> top(int n, int threads) {
+    return top(n, threads, byCredits());
+  }
+
+  /**
+   * Finds the n best centers among some candidates, printing progress every
+   * few seconds.
+   *
+   * @param n
+   *            number of centers.
+   * @param threads
+   *            number of threads to search with.
+   * @param candidates
+   *            actor ids, the most promising first.
+   * @return best candidates, best first.
+   */
+  public List<Result> top(int n, int threads, int[] candidates) {
+    this.n = n;
+    this.best = new PriorityQueue<Result>(Collections.reverseOrder());
+    this.worst = null;
+    this.done.set(0);
+    this.pruned.set(0);
+    this.trace = Metrics.current();
+
+    long start = System.currentTimeMillis();
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    ForkJoinTask<Void> task = pool.submit(new Search(candidates, 0, candidates.length));
+    while (task.isDone() == false) {
+      try {
+        task.get(5, TimeUnit.SECONDS);
+      } catch (TimeoutException e) {
+        long seconds = (System.currentTimeMillis() - start) / 1000;
+        System.out.println("  " + this.done.get() + " of " + candidates.length + " centers tried, "
+            + this.pruned.get() + " cut short, " + seconds + " s");
+      } catch (Exception e) {
+        pool.shutdownNow();
+        throw new IllegalStateException("topcenter search failed", e);
+      }
+    }
+    pool.shutdown();
+    System.out.println("  " + candidates.length + " centers tried (" + this.pruned.get() + " cut short) in "
+        + (System.currentTimeMillis() - start) + " ms on " + threads + " threads");
+
+    List<Result> results = new ArrayList<Result>(this.best);
+    Collections.sort(results);
+    return results;
+  }
+
+  /**
+   * Every actor, most credits first.
+   *
+   * @return actor ids.
+   */
+  private int[] byCredits() {
+    int maxDegree = 0;
+    for (int a = 0; a < this.graph.actorCount(); a++) {
+      maxDegree = Math.max(maxDegree, this.graph.degree(a));
+    }
+    int[] count = new int[maxDegree + 2];
+    for (int a = 0; a < this.graph.actorCount(); a++) { // counting sort, largest degree first
+      count[maxDegree - this.graph.degree(a) + 1]++;
+    }
+    for (int d = 1; d < count.length; d++) {
+      count[d] += count[d - 1];
+    }
+    int[] order = new int[this.graph.actorCount()];
+    for (int a = 0; a < this.graph.actorCount(); a++) {
+      order[count[maxDegree - this.graph.degree(a)]++] = a;
+    }
+    return order;
+  }
+
+  /**
+   * Runs a breadth first search out of one center, giving up once the lower
+   * bound on its average is worse than the current n-th best.
+   *
+   * @param center
+   *            actor id.
+   * @return the center's result, or null if it was abandoned.
+   */
+  private Result measure(int center) {
+    long component = this.components.actorsWith(center);
+    long[] sums = new long[2]; // reach and total
+    sums[0] = 1;
+    BitsetBfs bfs = this.kernels.get();
+    bfs.run(center, null, null, (hops, found) -> {
+      if (hops % 2 == 1) { // only movies, the actors come next
+        return true;
+      }
+      sums[0] += found;
+      sums[1] += (long) found * (hops / 2);
+      if (sums[0] == component) { // every actor has been reached
+        return false;
+      }
+      Result worst = this.worst;
+      long bound = sums[1] + (component - sums[0]) * (hops / 2 + 1); // the rest are at least one further
+      if (worst != null && bound * worst.reach > worst.total * component) {
+        sums[0] = -1;
+        return false;
+      }
+      return true;
+    });
+    return sums[0] == -1 ? null : new Result(center, this.graph.name(center), sums[1], sums[0]);
+  }
+
+  /**
+   * Offers a finished center to the top n.
+   *
+   * @param result
+   *            finished center.
+   */
+  private synchronized void offer(Result result) {
+    if (this.best.size() < this.n) {
+      this.best.add(result);
+    } else if (result.compareTo(this.best.peek()) < 0) {
+      this.best.poll();
+      this.best.add(result);
+    }
+    if (this.best.size() == this.n) {
+      this.worst = this.best.peek();
+    }
+  }
+
+  /**
+   * Tries a range of candidates, splitting it across threads.
+   */
+  private class Search extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    /** Candidates in the order they should be tried */
+    private int[] candidates;
+    /** First candidate of this task */
+    private int from;
+    /** One past the last candidate of this task */
+    private int to;
+
+    /**
+     * Constructs a task for candidates[from] up to candidates[to].
+     *
+     * @param candidates
+     *            every candidate.
+     * @param from
+     *            first index.
+     * @param to
+     *            one past the last index.
+     */
+    Search(int[] candidates, int from, int to) {
+      this.candidates = candidates;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (this.to - this.from > LEAF) {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(new Search(this.candidates, this.from, middle), new Search(this.candidates, middle, this.to));
+        return;
+      }
+      Metrics.Trace before = Metrics.adopt(trace);
+      try {
+        for (int i = this.from; i < this.to; i++) {
+          Result result = measure(this.candidates[i]);
+          if (result == null) {
+            pruned.incrementAndGet();
+          } else {
+            offer(result);
+          }
+          done.incrementAndGet();
+        }
+      } finally {
+        Metrics.adopt(before);
+      }
+    }
+  }
+}
@@ -0,0 +1,305 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * BaconBenchmark.java Times every operation of the game on a database, so
+ * changes can be compared against each other and slowdowns are caught. Each
+ * benchmark is warmed up first so the JIT has compiled it, then run a number
+ * of times, and the mean, best and worst times are printed.
+ *
+ * Results can be saved and later compared with a baseline, where a benchmark
+ * more than 10% slower than before is reported as a regression. Run it as
+ *
+ * java BaconBenchmark size|file [name...] [-n iterations] [-save file]
+ * [-baseline file]
+ *
+ * where size is one of the sizes of ImdbGenerator, which writes a database
+ * of that size to a temporary file first.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class BaconBenchmark {
+  /** Slowdown over the baseline reported as a regression */
+  private static final double TOLERANCE = 1.10;
+  /** Point queries per iteration of the query benchmarks */
+  private static final int QUERIES = 100;
+
+  /** Database file */
+  private Path file;
+  /** Iterations timed per benchmark, after as many warm up runs */
+  private int iterations;
+  /** Game loaded from the database */
+  private BaconNumber game;
+  /** Actors and movies */
+  private Graph graph;
+  /** Random actors for queries, the same on every run */
+  private String[] names;
+  /** Mean milliseconds of every benchmark run */
+  private LinkedHashMap<String, Double> means = new LinkedHashMap<String, Double>();
+
+  /**
+   * A timed operation.
+   */
+  private interface Benchmark {
+    /**
+     * Runs the operation once.
+     *
+     * @throws Exception
+     */
+    void run() throws Exception;
+  }
+
+  /**
+   * Loads a database to benchmark.
+   *
+   * @param file
+   *            database file.
+   * @param iterations
+   *            timed runs per benchmark.
+   * @throws IOException
+   */
+  public BaconBenchmark(Path file, int iterations) throws IOException {
+    this.file = file;
+    this.iterations = iterations;
+    this.graph = new GraphLoader().load(file);
+    String center = this.graph.actor("Kevin Bacon (I)") != -1 ? "Kevin Bacon (I)" : this.graph.name(0);
+    this.game = new BaconNumber(this.graph, center);
+    SplittableRandom random = new SplittableRandom(42);
+    this.names = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      this.names[i] = this.graph.name(random.nextInt(this.graph.actorCount()));
+    }
+  }
+
+  /**
+   * Runs one benchmark by name.
+   *
+   * @param name
+   *            name of the benchmark.
+   * @throws Exception
+   */
+  public void run(String name) throws Exception {
+    if (name.equals("load")) {
+      time(name, () -> new GraphLoader().load(this.file));
+    } else if (name.equals("snapshot")) {
+      Path snapshot = Files.createTempFile("bacon", ".bin");
+      try {
+        time(name, () -> {
+          GraphSnapshot.write(this.graph, snapshot);
+          GraphSnapshot.open(snapshot);
+        });
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    } else if (name.equals("bnumber")) { // no tree, so every query is a search
+      BaconNumber fresh = new BaconNumber(this.graph, this.names[0]);
+      time(name, () -> {
+        for (String actor : this.names) {
+          fresh.BNumber(actor);
+        }
+      });
+    } else if (name.equals("find")) {
+      BaconNumber fresh = new BaconNumber(this.graph, this.names[0]);
+      time(name, () -> {
+        for (String actor : this.names) {
+          fresh.find(actor);
+        }
+      });
+    } else if (name.equals("connect")) {
+      time(name, () -> {
+        for (int i = 1; i < this.names.length; i++) {
+          this.game.connect(this.names[i - 1], this.names[i]);
+        }
+      });
+    } else if (name.equals("tree")) {
+      int[] next = new int[1];
+      time(name, () -> new CenterTree(this.graph, this.names[next[0]++ % this.names.length]));
+    } else if (name.equals("batch")) { // the same number of centers as tree, in one pass
+      int[] sources = new int[MultiSourceBfs.LANES];
+      for (int i = 0; i < sources.length; i++) {
+        sources[i] = this.graph.actor(this.names[i]);
+      }
+      MultiSourceBfs bfs = new MultiSourceBfs(this.graph, Runtime.getRuntime().availableProcessors() > 1);
+      time(name, () -> bfs.run(sources));
+    } else if (name.equals("avgdist")) {
+      time(name, () -> this.game.avgdist());
+    } else if (name.equals("table")) {
+      time(name, () -> this.game.table());
+    } else if (name.equals("findall")) {
+      time(name, () -> this.game.findall());
+    } else if (name.equals("longest")) {
+      time(name, () -> this.game.longest());
+    } else if (name.equals("diameter")) {
+      time(name, () -> this.game.diameter());
+    } else if (name.equals("bridges")) {
+      time(name, () -> this.game.bridges(10, 64));
+    } else if (name.equals("most")) {
+      time(name, () -> this.game.most(10));
+    } else if (name.equals("topcenter")) {
+      time(name, () -> this.game.topcenter(10));
+    } else if (name.equals("topestimate")) {
+      time(name, () -> this.game.topcenter(10, true));
+    } else {
+      System.out.println("No benchmark named " + name);
+    }
+  }
+
+  /**
+   * Warms up and times a benchmark, hiding whatever it prints.
+   *
+   * @param name
+   *            name of the benchmark.
+   * @param benchmark
+   *            operation to time.
+   * @throws Exception
+   */
+  private void time(String name, Benchmark benchmark) throws Exception {
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    long[] nanos = new long[this.iterations];
+    try {
+      for (int i = 0; i < this.iterations; i++) {
+        benchmark.run();
+      }
+      for (int i = 0; i < this.iterations; i++) {
+        long start = System.nanoTime();
+        benchmark.run();
+        nanos[i] = System.nanoTime() - start;
+      }
+    } finally {
+      System.setOut(out);
+    }
+    long sum = 0;
+    long min = Long.MAX_VALUE;
+    long max = 0;
+    for (long n : nanos) {
+      sum += n;
+      min = Math.min(min, n);
+      max = Math.max(max, n);
+    }
+    double mean = sum / 1e6 / this.iterations;
+    this.means.put(name, mean);
+    System.out.println(String.format("%-10s %10.3f %10.3f %10.3f ms", name, mean, min / 1e6, max / 1e6));
+  }
+
+  /**
+   * Saves the mean of every benchmark run.
+   *
+   * @param file
+   *            properties file to write.
+   * @throws IOException
+   */
+  public void save(Path file) throws IOException {
+    Properties results = new Properties();
+    for (Map.Entry<String, Double> mean : this.means.entrySet()) {
+      results.setProperty(mean.getKey(), mean.getValue().toString());
+    }
+    try (OutputStream out = Files.newOutputStream(file)) {
+      results.store(out, "BaconBenchmark on " + this.file.getFileName() + ", mean ms");
+    }
+  }
+
+  /**
+   * Compares the benchmarks run with a saved baseline.
+   *
+   * @param file
+   *            properties file written by save().
+   * @return number of regressions.
+   * @throws IOException
+   */
+  public int compare(Path file) throws IOException {
+    Properties baseline = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      baseline.load(in);
+    }
+    int regressions = 0;
+    for (Map.Entry<String, Double> mean : this.means.entrySet()) {
+      String before = baseline.getProperty(mean.getKey());
+      if (before == null) {
+        continue;
+      }
+      double ratio = mean.getValue() / Double.parseDouble(before);
+      boolean slower = ratio > TOLERANCE;
+      if (slower) {
+        regressions++;
+      }
+      System.out.println(String.format("%-10s %9.2fx%s", mean.getKey(), ratio, slower ? "  REGRESSION" : ""));
+    }
+    return regressions;
+  }
+
+  /**
+   * Runs the benchmarks named on the command line, or all of them.
+   *
+   * @param args
+   *            database size or file, benchmark names and options.
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.out.println("usage: BaconBenchmark <size|file> [benchmark...] [-n iterations] [-save file] "
+          + "[-baseline file]");
+      return;
+    }
+    int iterations = 10;
+    Path save = null;
+    Path baseline = null;
+    List<String> names = new ArrayList<String>();
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].equals("-n")) {
+        iterations = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-save")) {
+        save = Paths.get(args[++i]);
+      } else if (args[i].equals("-baseline")) {
+        baseline = Paths.get(args[++i]);
+      } else {
+        names.add(args[i]);
+      }
+    }
+    if (names.isEmpty()) {
+      String[] all = { "load", "snapshot", "bnumber", "find", "connect", "tree", "batch", "avgdist", "table",
+          "findall", "longest", "diameter", "bridges", "most", "topcenter", "topestimate" };
+      names.addAll(List.of(all));
+    }
+
+    Path file = Paths.get(args[0]);
+    boolean generated = Files.exists(file) == false;
+    if (generated) {
+      file = Files.createTempFile("imdb." + args[0], ".txt");
+      ImdbGenerator.main(new String[] { args[0], file.toString() });
+    }
+    int regressions = 0;
+    try {
+      BaconBenchmark benchmark = new BaconBenchmark(file, iterations);
+      System.out.println(String.format("%-10s %10s %10s %10s", "benchmark", "mean", "best", "worst"));
+      for (String name : names) {
+        benchmark.run(name);
+      }
+      if (save != null) {
+        benchmark.save(save);
+      }
+      if (baseline != null) {
+        regressions = benchmark.compare(baseline);
+      }
+    } finally {
+      if (generated) {
+        Files.deleteIfExists(file);
+      }
+    }
+    if (regressions > 0) {
+      System.exit(1);
+    }
+  }
+}
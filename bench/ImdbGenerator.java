@@ -0,0 +1,227 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ImdbGenerator.java Writes a made-up actor|movie file shaped like the IMDB
+ * files the game reads, so the game can be measured without downloading
+ * anything. The same seed always gives the same file.
+ *
+ * Like IMDB, most movies have small casts and a few have huge ones, most
+ * actors have one or two credits and a few have hundreds, and besides one
+ * giant connected component there are many small islands of movies whose
+ * actors appear nowhere else.
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class ImdbGenerator {
+  /** Largest cast a movie can have */
+  private static final int MAX_CAST = 800;
+  /** Share of movies that go to islands outside the giant component */
+  private static final double ISLAND_SHARE = 0.02;
+
+  /** Random numbers, fixed by the seed */
+  private SplittableRandom random;
+
+  /**
+   * Constructs a generator.
+   *
+   * @param seed
+   *            seed of the random numbers.
+   */
+  public ImdbGenerator(long seed) {
+    this.random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Number of lines of one of the game's databases.
+   *
+   * @param size
+   *            small, top250, pre1950, post1950, full, or a line count.
+   * @return number of lines.
+   */
+  public static long lines(String size) {
+    if (size.equals("small")) {
+      return 1817;
+    } else if (size.equals("top250")) {
+      return 14339;
+    } else if (size.equals("pre1950")) {
+      return 966338;
+    } else if (size.equals("post1950")) {
+      return 6848516;
+    } else if (size.equals("full")) {
+      return 7814854;
+    }
+    return Long.parseLong(size);
+  }
+
+  /**
+   * Writes about the given number of credits, one actor|movie per line.
+   * Kevin Bacon (I) is given a handful of movies in the giant component.
+   *
+   * @param lines
+   *            number of lines to write.
+   * @param out
+   *            where to write them.
+   * @throws IOException
+   */
+  public void generate(long lines, Writer out) throws IOException {
+    long actors = Math.max(50, lines / 4); // about four credits per actor
+    long islandActors = Math.max(10, (long) (actors * ISLAND_SHARE));
+    long nextIsland = actors; // island actors get their own numbers past the shared ones
+    long written = 0;
+    long movie = 0;
+    long[] cast = new long[MAX_CAST];
+    while (written < lines) {
+      boolean island = this.random.nextDouble() < ISLAND_SHARE;
+      int size = (int) Math.min(lines - written, castSize());
+      int count = 0;
+      if (island) { // a small cast nobody else works with
+        size = Math.min(size, 1 + this.random.nextInt(6));
+        for (int i = 0; i < size; i++) {
+          cast[count++] = nextIsland++;
+        }
+        if (nextIsland > actors + islandActors * 4) {
+          nextIsland = actors;
+        }
+      } else {
+        for (int i = 0; i < size; i++) {
+          long actor = creditedActor(actors);
+          boolean repeat = false;
+          for (int j = 0; j < count; j++) {
+            repeat |= cast[j] == actor;
+          }
+          if (repeat == false) {
+            cast[count++] = actor;
+          }
+        }
+        if (movie % 1000 == 7 && count < MAX_CAST) {
+          cast[count++] = -1; // Kevin Bacon
+        }
+      }
+      String title = movieTitle(movie++);
+      for (int i = 0; i < count; i++) {
+        out.write(cast[i] == -1 ? "Kevin Bacon (I)" : actorName(cast[i]));
+        out.write('|');
+        out.write(title);
+        out.write('\n');
+      }
+      written += count;
+    }
+  }
+
+  /**
+   * Draws a cast size from a power law: mostly under ten, rarely hundreds.
+   *
+   * @return cast size.
+   */
+  private int castSize() {
+    double u = 1 - this.random.nextDouble();
+    return (int) Math.min(MAX_CAST, Math.floor(2 * Math.pow(u, -1 / 1.3)));
+  }
+
+  /**
+   * Draws an actor for a credit. Low numbers come up far more often, which
+   * gives a few actors hundreds of credits and most of them one or two.
+   *
+   * @param actors
+   *            number of shared actors.
+   * @return actor number.
+   */
+  private long creditedActor(long actors) {
+    return (long) (actors * Math.pow(this.random.nextDouble(), 2.5));
+  }
+
+  /**
+   * Name of an actor, with an IMDB style number to tell apart equal names.
+   *
+   * @param n
+   *            actor number.
+   * @return actor name.
+   */
+  static String actorName(long n) {
+    return FIRST[(int) (n % FIRST.length)] + " " + LAST[(int) ((n / FIRST.length) % LAST.length)] + " ("
+        + roman(1 + n / (FIRST.length * LAST.length)) + ")";
+  }
+
+  /**
+   * Title of a movie, with a year.
+   *
+   * @param n
+   *            movie number.
+   * @return movie title.
+   */
+  static String movieTitle(long n) {
+    return WORDS[(int) (n % WORDS.length)] + " " + WORDS[(int) ((n / WORDS.length) % WORDS.length)] + " "
+        + (n / (WORDS.length * WORDS.length)) + " (" + (1920 + n % 90) + ")";
+  }
+
+  /**
+   * Writes a number in roman numerals, like IMDB's (I), (II), (III).
+   *
+   * @param n
+   *            number, at least 1.
+   * @return roman numeral.
+   */
+  private static String roman(long n) {
+    String[] symbols = { "M", "CM", "D", "CD", "C", "XC", "L", "XL", "X", "IX", "V", "IV", "I" };
+    int[] values = { 1000, 900, 500, 400, 100, 90, 50, 40, 10, 9, 5, 4, 1 };
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      while (n >= values[i]) {
+        sb.append(symbols[i]);
+        n -= values[i];
+      }
+    }
+    return sb.toString();
+  }
+
+  /** First names */
+  private static final String[] FIRST = { "John", "Mary", "James", "Anna", "Robert", "Linda", "Michael", "Susan",
+      "William", "Karen", "David", "Lisa", "Richard", "Nancy", "Joseph", "Betty", "Thomas", "Helen", "Charles",
+      "Sandra", "Daniel", "Donna", "Matthew", "Carol", "Anthony", "Ruth", "Mark", "Sharon", "Paul", "Laura" };
+  /** Last names */
+  private static final String[] LAST = { "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+      "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor",
+      "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark", "Ramirez",
+      "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres", "Nguyen", "Hill",
+      "Flores" };
+  /** Words for movie titles */
+  private static final String[] WORDS = { "Night", "Return", "Secret", "Last", "Love", "Road", "City", "Dark",
+      "Blood", "Summer", "House", "River", "Star", "Dream", "Fire", "Storm", "Shadow", "King", "Lost", "Wild",
+      "Heart", "Midnight", "Silent", "Golden", "Broken", "Iron", "Ghost", "Winter", "Empire", "Edge" };
+
+  /**
+   * Writes a file: ImdbGenerator size file [seed]. A file name ending in .gz
+   * is gzipped.
+   *
+   * @param args
+   *            size (small, top250, pre1950, post1950, full or a line
+   *            count), output file and optional seed.
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("usage: ImdbGenerator <small|top250|pre1950|post1950|full|lines> <file> [seed]");
+      return;
+    }
+    long lines = lines(args[0]);
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 1950;
+    long start = System.currentTimeMillis();
+    try (OutputStream file = Files.newOutputStream(Paths.get(args[1]));
+        OutputStream packed = args[1].endsWith(".gz") ? new GZIPOutputStream(file, 1 << 16) : file;
+        Writer out = new BufferedWriter(new OutputStreamWriter(packed, StandardCharsets.UTF_8), 1 << 16)) {
+      new ImdbGenerator(seed).generate(lines, out);
+    }
+    System.out.println("Wrote " + lines + " lines to " + args[1] + " in " + (System.currentTimeMillis() - start)
+        + " ms");
+  }
+}
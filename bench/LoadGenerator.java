@@ -0,0 +1,222 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadGenerator.java Sends a BaconServer as many requests as it can answer,
+ * with a fixed number of requests in flight over keep-alive connections, and
+ * reports throughput and latency. Actor names are picked at random out of the same database the
+ * server was started with. Run it as
+ *
+ * java LoadGenerator http://localhost:8080 file [concurrency] [seconds]
+ * [endpoint]
+ *
+ * where endpoint is bacon, path, movies, connect or mix (the default: mostly
+ * bacon with some of the others).
+ *
+ * @author Isabella Zelichenko and Alan Wang
+ *
+ */
+public class LoadGenerator {
+  /** Server address */
+  private String base;
+  /** Actors and movies, for names to ask about */
+  private Graph graph;
+  /** Endpoint to hit */
+  private String endpoint;
+  /** Client side time of every request */
+  private LatencyHistogram latency = new LatencyHistogram();
+  /** Requests answered with something other than 200 or 404 */
+  private AtomicLong errors = new AtomicLong();
+
+  /**
+   * Prepares a load generator.
+   *
+   * @param base
+   *            server address.
+   * @param graph
+   *            the server's database.
+   * @param endpoint
+   *            endpoint to hit, or mix.
+   */
+  public LoadGenerator(String base, Graph graph, String endpoint) {
+    this.base = base;
+    this.graph = graph;
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * Sends requests for a while. Every request in flight has its own thread
+   * and keep-alive connection, sending the next request as soon as the last
+   * one is answered.
+   *
+   * @param concurrency
+   *            requests in flight at any time.
+   * @param seconds
+   *            how long to keep going.
+   * @return requests sent.
+   * @throws InterruptedException
+   */
+  public long run(int concurrency, int seconds) throws InterruptedException {
+    URI server = URI.create(this.base);
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    AtomicLong sent = new AtomicLong();
+    ExecutorService threads = BaconServer.requestExecutor();
+    for (int c = 0; c < concurrency; c++) {
+      SplittableRandom random = new SplittableRandom(c);
+      threads.execute(() -> {
+        try (Socket socket = new Socket(server.getHost(), server.getPort())) {
+          socket.setTcpNoDelay(true);
+          OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+          InputStream in = new BufferedInputStream(socket.getInputStream());
+          while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            out.write(("GET " + next(random) + " HTTP/1.1\r\nHost: " + server.getHost() + "\r\n\r\n")
+                .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            int status = readResponse(in);
+            if (status != 200 && status != 404) {
+              this.errors.incrementAndGet();
+            }
+            this.latency.record(System.nanoTime() - start);
+            sent.incrementAndGet();
+          }
+        } catch (IOException e) {
+          this.errors.incrementAndGet();
+        }
+      });
+    }
+    threads.shutdown();
+    threads.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+    return sent.get();
+  }
+
+  /**
+   * Reads one HTTP response, skipping its body.
+   *
+   * @param in
+   *            connection to the server.
+   * @return status code.
+   * @throws IOException
+   */
+  private static int readResponse(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    int status = -1;
+    long length = 0;
+    while (true) {
+      int c = in.read();
+      if (c == -1) {
+        throw new EOFException("server closed the connection");
+      } else if (c != '\n') {
+        line.append((char) c);
+        continue;
+      }
+      String header = line.toString().trim();
+      line.setLength(0);
+      if (header.isEmpty()) {
+        break;
+      } else if (status == -1) { // HTTP/1.1 200 OK
+        status = Integer.parseInt(header.split(" ")[1]);
+      } else if (header.toLowerCase().startsWith("content-length:")) {
+        length = Long.parseLong(header.substring(15).trim());
+      }
+    }
+    while (length > 0) {
+      long skipped = in.skip(length);
+      if (skipped <= 0) {
+        if (in.read() == -1) {
+          throw new EOFException("server closed the connection");
+        }
+        skipped = 1;
+      }
+      length -= skipped;
+    }
+    return status;
+  }
+
+  /**
+   * Address of the next request.
+   *
+   * @param random
+   *            random numbers.
+   * @return path and query of the request.
+   */
+  private String next(SplittableRandom random) {
+    String endpoint = this.endpoint;
+    if (endpoint.equals("mix")) {
+      int roll = random.nextInt(100);
+      endpoint = roll < 70 ? "bacon" : roll < 85 ? "path" : roll < 95 ? "movies" : "connect";
+    }
+    String name = encode(this.graph.name(random.nextInt(this.graph.actorCount())));
+    if (endpoint.equals("connect")) {
+      String other = encode(this.graph.name(random.nextInt(this.graph.actorCount())));
+      return "/connect?from=" + name + "&to=" + other;
+    }
+    return "/" + endpoint + "?name=" + name;
+  }
+
+  /**
+   * Encodes a query parameter.
+   *
+   * @param s
+   *            parameter value.
+   * @return encoded value.
+   */
+  private static String encode(String s) {
+    return URLEncoder.encode(s, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Runs a load test and prints the results along with the server's own
+   * statistics.
+   *
+   * @param args
+   *            server address, database file or snapshot, concurrency,
+   *            seconds and endpoint.
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.out.println("usage: LoadGenerator <server url> <snapshot|file> [concurrency] [seconds] [endpoint]");
+      return;
+    }
+    Graph graph;
+    try {
+      graph = GraphSnapshot.open(Paths.get(args[1]));
+    } catch (IOException | RuntimeException e) { // not a snapshot, read it as a database
+      graph = new GraphLoader().load(Paths.get(args[1]));
+    }
+    int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+    int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+    String endpoint = args.length > 4 ? args[4] : "mix";
+
+    LoadGenerator load = new LoadGenerator(args[0], graph, endpoint);
+    load.run(Math.min(concurrency, 64), 2); // warm up the server's JIT and tree cache
+    load.latency = new LatencyHistogram();
+    load.errors.set(0);
+    long start = System.nanoTime();
+    long sent = load.run(concurrency, seconds);
+    double elapsed = (System.nanoTime() - start) / 1e9;
+    System.out.println(String.format("%d requests in %.1f s with %d in flight: %.0f requests/s, %d errors", sent,
+        elapsed, concurrency, sent / elapsed, load.errors.get()));
+    System.out.println("Client latency: " + load.latency);
+    HttpRequest stats = HttpRequest.newBuilder(URI.create(args[0] + "/stats")).GET().build();
+    System.out.println("Server stats: "
+        + HttpClient.newHttpClient().send(stats, HttpResponse.BodyHandlers.ofString()).body());
+  }
+}